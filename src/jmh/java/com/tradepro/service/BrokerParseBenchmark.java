@@ -0,0 +1,92 @@
+package com.tradepro.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second {@link CsvImportService#parseBrokerRecords} tokenizes and parses from the
+ * Fidelity and Robinhood sample exports under broker-samples, whose data lines are repeated up
+ * to {@link #ROWS}. The parse pool has a single thread, so the score is the single-core cost of
+ * the tokenizer and the field parsers; run with -prof gc to see what they allocate per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BrokerParseBenchmark {
+
+    static final int ROWS = 100_000;
+
+    @Param({"fidelity", "robinhood"})
+    public String broker;
+
+    private String export;
+    private CsvImportService csvImportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        export = sampleExport(broker, ROWS);
+        csvImportService = new CsvImportService();
+        ReflectionTestUtils.setField(csvImportService, "parseParallelism", 1);
+        ReflectionTestUtils.setField(csvImportService, "parseChunkSize", 1000);
+        csvImportService.startParsePool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csvImportService.stopParsePool();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int parse() throws IOException {
+        int[] records = new int[1];
+        csvImportService.parseBrokerRecords(new BufferedReader(new StringReader(export)), record -> records[0]++);
+        return records[0];
+    }
+
+    /**
+     * Builds an export of the broker with the header of its sample file and the sample's data
+     * lines repeated until there are the given number of them.
+     */
+    static String sampleExport(String broker, int rows) {
+        String[] lines;
+        try (InputStream in = BrokerParseBenchmark.class.getResourceAsStream("/broker-samples/" + broker + ".csv")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No sample export for " + broker);
+            }
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        StringBuilder export = new StringBuilder(lines[0]).append('\n');
+        for (int i = 0; i < rows; i++) {
+            export.append(lines[1 + i % (lines.length - 1)]).append('\n');
+        }
+        return export.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.tradepro.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second of {@link CsvImportService#parseBrokerRecords} as trades.import.parse-parallelism
+ * grows from one to eight threads, on the sample exports of {@link BrokerParseBenchmark}. Lines are
+ * read and cut into chunks on the calling thread, which bounds the speedup; the chunk size is the
+ * trades.import.parse-chunk-size default unless overridden with -p parseChunkSize=... Run on a
+ * machine with at least eight cores, or the larger pools only measure contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BrokerParseScalingBenchmark {
+
+    private static final int ROWS = 400_000;
+
+    @Param({"fidelity", "robinhood"})
+    public String broker;
+
+    @Param({"1", "2", "4", "8"})
+    public int parseParallelism;
+
+    @Param({"1000"})
+    public int parseChunkSize;
+
+    private String export;
+    private CsvImportService csvImportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        export = BrokerParseBenchmark.sampleExport(broker, ROWS);
+        csvImportService = new CsvImportService();
+        ReflectionTestUtils.setField(csvImportService, "parseParallelism", parseParallelism);
+        ReflectionTestUtils.setField(csvImportService, "parseChunkSize", parseChunkSize);
+        csvImportService.startParsePool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csvImportService.stopParsePool();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int parse() throws IOException {
+        int[] records = new int[1];
+        csvImportService.parseBrokerRecords(new BufferedReader(new StringReader(export)), record -> records[0]++);
+        return records[0];
+    }
+}
@@ -0,0 +1,114 @@
+package com.tradepro.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.tradepro.dto.BulkImportResult;
+import com.tradepro.model.Trade;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import a batch of new trades with one save per trade, as the import endpoints did,
+ * against {@link TradeService#bulkInsert}'s unordered bulk writes. Runs against an in-memory
+ * mongo-java-server by default; set -Dbenchmark.mongo.uri to measure a real mongod, where the
+ * round trips saved by the bulk writes dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeBulkInsertBenchmark {
+
+    @Param({"1000", "5000"})
+    public int rows;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private TradeService tradeService;
+    private List<Trade> trades;
+
+    @Setup(Level.Trial)
+    public void startMongo() {
+        String uri = System.getProperty("benchmark.mongo.uri");
+        if (uri == null) {
+            server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = server.bind();
+            uri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+        }
+        client = MongoClients.create(uri);
+        mongoTemplate = new MongoTemplate(client, "benchmark");
+
+        tradeService = new TradeService();
+        ReflectionTestUtils.setField(tradeService, "importMongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(tradeService, "bulkBatchSize", batchSize);
+    }
+
+    @Setup(Level.Invocation)
+    public void newTrades() {
+        mongoTemplate.dropCollection(Trade.class);
+        LocalDate start = LocalDate.of(2024, 1, 2);
+        trades = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Trade trade = new Trade();
+            trade.setUserId("user");
+            trade.setSymbol("SYM" + (i % 50));
+            trade.setEntryDate(start.plusDays(i % 250).toString());
+            trade.setAction("BUY");
+            trade.setQuantity(100);
+            trade.setPrice(10 + i % 90);
+            trade.setType("STOCK");
+            trade.setRemainingQuantity(100);
+            trade.refreshTypedDates();
+            trades.add(trade);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopMongo() {
+        client.close();
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int saveEach() {
+        for (Trade trade : trades) {
+            mongoTemplate.save(trade);
+        }
+        return trades.size();
+    }
+
+    @Benchmark
+    public int bulkInsert() {
+        BulkImportResult result = tradeService.bulkInsert(trades);
+        return result.getSaved().size();
+    }
+}
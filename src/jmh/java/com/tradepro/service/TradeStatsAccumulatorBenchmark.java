@@ -0,0 +1,112 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /count statistics computed by {@link TradeStatsAccumulator} against the six stream passes
+ * the controller used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeStatsAccumulatorBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int tradeCount;
+
+    private List<Trade> trades;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] statuses = {"OPEN", "CLOSED", "CLOSED", "PARTIALLY_CLOSED"};
+        trades = new ArrayList<>(tradeCount);
+        for (int i = 0; i < tradeCount; i++) {
+            Trade trade = new Trade();
+            trade.setStatus(statuses[random.nextInt(statuses.length)]);
+            if (!"OPEN".equals(trade.getStatus())) {
+                trade.setTotalProfit(random.nextGaussian() * 250);
+            }
+            trades.add(trade);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> accumulator() {
+        return TradeStatsAccumulator.of(trades).toResponse();
+    }
+
+    @Benchmark
+    public Map<String, Object> multiStream() {
+        long totalTrades = trades.size();
+        long openTrades = trades.stream()
+            .filter(trade -> "OPEN".equals(trade.getStatus()))
+            .count();
+        long closedTrades = trades.stream()
+            .filter(TradeStatsAccumulatorBenchmark::isClosed)
+            .count();
+
+        double winRatio = 0.0;
+        if (closedTrades > 0) {
+            long winningTrades = trades.stream()
+                .filter(trade -> isClosed(trade) && trade.getTotalProfit() != null && trade.getTotalProfit() > 0)
+                .count();
+            winRatio = (double) winningTrades / closedTrades;
+        }
+
+        double avgProfit = 0.0;
+        if (closedTrades > 0) {
+            avgProfit = trades.stream()
+                .filter(trade -> isClosed(trade) && trade.getTotalProfit() != null)
+                .mapToDouble(Trade::getTotalProfit)
+                .average()
+                .orElse(0.0);
+        }
+
+        double biggestWin = trades.stream()
+            .filter(trade -> isClosed(trade) && trade.getTotalProfit() != null && trade.getTotalProfit() > 0)
+            .mapToDouble(Trade::getTotalProfit)
+            .max()
+            .orElse(0.0);
+        double biggestLoss = trades.stream()
+            .filter(trade -> isClosed(trade) && trade.getTotalProfit() != null && trade.getTotalProfit() < 0)
+            .mapToDouble(Trade::getTotalProfit)
+            .min()
+            .orElse(0.0);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("total", totalTrades);
+        response.put("open", openTrades);
+        response.put("closed", closedTrades);
+        response.put("winRatio", winRatio);
+        response.put("avgProfit", avgProfit);
+        response.put("biggestWin", biggestWin > 0 ? biggestWin : null);
+        response.put("biggestLoss", biggestLoss < 0 ? biggestLoss : null);
+        return response;
+    }
+
+    private static boolean isClosed(Trade trade) {
+        return "CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus());
+    }
+}
@@ -0,0 +1,123 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Exit;
+import com.tradepro.model.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan speed of the duration and profit loops over {@link UserTradeColumns} against the same loops
+ * over the list of {@link Trade}s they replaced. The retained heap of both representations is
+ * printed once per fork; run with -prof gc to also see what building the columns allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserTradeColumnsBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tradeCount;
+
+    private List<Trade> trades;
+    private UserTradeColumns columns;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] statuses = {"OPEN", "CLOSED", "CLOSED", "PARTIALLY_CLOSED"};
+        String[] symbols = {"AAPL", "TSLA", "MSFT", "NVDA", "SPY", "QQQ", "AMZN", "META"};
+        String[] strategies = {"Breakout", "Swing", "Earnings", "Wheel"};
+        LocalDate start = LocalDate.of(2020, 1, 1);
+
+        trades = new ArrayList<>(tradeCount);
+        for (int i = 0; i < tradeCount; i++) {
+            LocalDate entry = start.plusDays(random.nextInt(1500));
+            Trade trade = new Trade();
+            trade.setId(Integer.toHexString(i));
+            trade.setUserId("user");
+            trade.setSymbol(symbols[random.nextInt(symbols.length)]);
+            trade.setStrategy(strategies[random.nextInt(strategies.length)]);
+            trade.setEntryDate(entry.toString());
+            trade.setQuantity(1 + random.nextInt(500));
+            trade.setStatus(statuses[random.nextInt(statuses.length)]);
+            if (!"OPEN".equals(trade.getStatus())) {
+                double profit = random.nextGaussian() * 250;
+                trade.setExits(new ArrayList<>(List.of(
+                    new Exit(entry.plusDays(1 + random.nextInt(60)).toString(), 0.0, trade.getQuantity(), profit, 0.0))));
+                trade.setTotalProfit(profit);
+            }
+            trade.refreshTypedDates();
+            trades.add(trade);
+        }
+        columns = new UserTradeColumns(trades, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void printFootprint() {
+        System.out.printf("%n%d trades: List<Trade> retains %d bytes, UserTradeColumns %d bytes%n", tradeCount,
+            GraphLayout.parseInstance(trades).totalSize(), GraphLayout.parseInstance(columns).totalSize());
+    }
+
+    @Benchmark
+    public long scanColumns() {
+        long daysHeld = 0;
+        double profit = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.isClosedAt(i)) {
+                continue;
+            }
+            profit += columns.profitAt(i);
+            if (columns.entryDayAt(i) != UserTradeColumns.NO_DATE && columns.exitDayAt(i) != UserTradeColumns.NO_DATE) {
+                daysHeld += columns.exitDayAt(i) - columns.entryDayAt(i);
+            }
+        }
+        return daysHeld + (long) profit;
+    }
+
+    @Benchmark
+    public long scanTrades() {
+        long daysHeld = 0;
+        double profit = 0;
+        for (Trade trade : trades) {
+            if (!"CLOSED".equals(trade.getStatus()) && !"PARTIALLY_CLOSED".equals(trade.getStatus())) {
+                continue;
+            }
+            if (trade.getTotalProfit() != null) {
+                profit += trade.getTotalProfit();
+            }
+            List<Exit> exits = trade.getExits();
+            Integer entryDay = trade.getEntryDay();
+            Integer exitDay = exits.isEmpty() ? null : exits.get(exits.size() - 1).getExitDay();
+            if (entryDay != null && exitDay != null) {
+                daysHeld += exitDay - entryDay;
+            }
+        }
+        return daysHeld + (long) profit;
+    }
+
+    @Benchmark
+    public UserTradeColumns buildColumns() {
+        return new UserTradeColumns(trades, 0);
+    }
+}
@@ -1,11 +1,19 @@
 package com.tradepro.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tradepro.service.AnalyticsCacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @EnableCaching
 public class CacheConfig {
@@ -37,4 +45,21 @@ public class CacheConfig {
         ));
         return cacheManager;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Analytics results keyed by user, endpoint, parameters and data version.
+     * Hit ratio and evictions are published as the "analytics" cache metrics.
+     */
+    @Bean
+    public Cache<AnalyticsCacheService.Key, Object> analyticsResultCache(
+            MeterRegistry meterRegistry,
+            @Value("${analytics.cache.max-entries:10000}") long maxEntries,
+            @Value("${analytics.cache.expire-after-access:PT30M}") Duration expireAfterAccess) {
+        Cache<AnalyticsCacheService.Key, Object> cache = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(expireAfterAccess)
+            .recordStats()
+            .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "analytics");
+    }
+}
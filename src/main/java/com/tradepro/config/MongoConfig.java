@@ -2,12 +2,28 @@ package com.tradepro.config;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class MongoConfig extends AbstractMongoClientConfiguration {
@@ -18,6 +34,32 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${spring.data.mongodb.database}")
     private String mongoDB;
 
+    // Pool and socket settings that are set take precedence over the same options in the
+    // connection string; unset ones (null) leave the connection string's value or the driver default
+    @Value("${mongodb.pool.max-size:#{null}}")
+    private Integer poolMaxSize;
+
+    @Value("${mongodb.pool.min-size:#{null}}")
+    private Integer poolMinSize;
+
+    @Value("${mongodb.pool.max-wait:#{null}}")
+    private Duration poolMaxWait;
+
+    @Value("${mongodb.pool.max-idle-time:#{null}}")
+    private Duration poolMaxIdleTime;
+
+    @Value("${mongodb.socket.connect-timeout:#{null}}")
+    private Duration connectTimeout;
+
+    @Value("${mongodb.socket.read-timeout:#{null}}")
+    private Duration socketTimeout;
+
+    @Value("${mongodb.slow-command-threshold:PT0.5S}")
+    private Duration slowCommandThreshold;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Override
     protected String getDatabaseName() {
         return mongoDB;
@@ -26,13 +68,101 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Override
     @Bean
     public MongoClient mongoClient() {
-        MongoClientSettings settings = MongoClientSettings.builder()
+        // Check-out waits are timed per thread, which only holds for the sync driver
+        MongoClientSettings settings = clientSettings()
+            .applyToConnectionPoolSettings(builder ->
+                builder.addConnectionPoolListener(new MongoPoolMetricsListener(meterRegistry)))
+            .build();
+
+        return MongoClients.create(settings);
+    }
+
+    /**
+     * Reactive streams client with the same settings and its own pool, for reads that should
+     * not hold a request thread while documents arrive.
+     */
+    @Bean
+    public com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient() {
+        return com.mongodb.reactivestreams.client.MongoClients.create(clientSettings().build());
+    }
+
+    @Bean
+    public ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory(com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient) {
+        return new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, getDatabaseName());
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory,
+                                                       MappingMongoConverter converter) {
+        return new ReactiveMongoTemplate(reactiveMongoDatabaseFactory, converter);
+    }
+
+    private MongoClientSettings.Builder clientSettings() {
+        return MongoClientSettings.builder()
             .applyConnectionString(new ConnectionString(mongoUri))
             .applyToSslSettings(builder -> 
                 builder.enabled(true)
                        .invalidHostNameAllowed(true))
-            .build();
+            .applyToConnectionPoolSettings(builder -> {
+                if (poolMaxSize != null) {
+                    builder.maxSize(poolMaxSize);
+                }
+                if (poolMinSize != null) {
+                    builder.minSize(poolMinSize);
+                }
+                if (poolMaxWait != null) {
+                    builder.maxWaitTime(poolMaxWait.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (poolMaxIdleTime != null) {
+                    builder.maxConnectionIdleTime(poolMaxIdleTime.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                builder.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry));
+            })
+            .applyToSocketSettings(builder -> {
+                if (connectTimeout != null) {
+                    builder.connectTimeout((int) connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (socketTimeout != null) {
+                    builder.readTimeout((int) socketTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            })
+            .addCommandListener(new MongoMetricsCommandListener(meterRegistry))
+            .addCommandListener(new SlowMongoCommandLogger(slowCommandThreshold));
+    }
 
-        return MongoClients.create(settings);
+    @Override
+    @Bean
+    @Primary
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory databaseFactory, MappingMongoConverter converter) {
+        return super.mongoTemplate(databaseFactory, converter);
+    }
+
+    /**
+     * Template for bulk trade imports, writing with its own write concern so large imports
+     * can trade durability for throughput without affecting regular writes.
+     */
+    @Bean
+    public MongoTemplate importMongoTemplate(MongoDatabaseFactory databaseFactory, MappingMongoConverter converter,
+                                             @Value("${trades.bulk-import.write-concern:ACKNOWLEDGED}") String writeConcern) {
+        WriteConcern concern = WriteConcern.valueOf(writeConcern);
+        if (concern == null) {
+            throw new IllegalArgumentException("Unknown trades.bulk-import.write-concern: " + writeConcern);
+        }
+        MongoTemplate template = new MongoTemplate(databaseFactory, converter);
+        template.setWriteConcern(concern);
+        return template;
+    }
+
+    /**
+     * Read preference of analytics reads that may be served by a secondary, no more than
+     * analytics.read.max-staleness behind the primary. See AnalyticsReadRouting for when it is used.
+     */
+    @Bean
+    public ReadPreference analyticsReadPreference(@Value("${analytics.read.max-staleness:PT90S}") Duration maxStaleness) {
+        // The server rejects a bound below 90 seconds at query time, so fail at startup instead
+        if (maxStaleness.getSeconds() < 90) {
+            throw new IllegalArgumentException("analytics.read.max-staleness must be at least 90 seconds");
+        }
+        return ReadPreference.secondaryPreferred(maxStaleness.getSeconds(), TimeUnit.SECONDS);
     }
-} 
\ No newline at end of file
+}
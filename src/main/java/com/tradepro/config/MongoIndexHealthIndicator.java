@@ -0,0 +1,32 @@
+package com.tradepro.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports DOWN while any index of the managed sets is missing, e.g. after a failed build at startup,
+ * and the indexes of every managed collection while UP.
+ */
+@Component("tradeIndexes")
+public class MongoIndexHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private MongoIndexManager mongoIndexManager;
+
+    @Override
+    public Health health() {
+        try {
+            List<String> missing = mongoIndexManager.missingIndexes();
+            if (!missing.isEmpty()) {
+                return Health.down().withDetail("missing", missing).build();
+            }
+            return Health.up().withDetail("indexes", mongoIndexManager.managedIndexes()).build();
+        } catch (Exception e) {
+            return Health.down(e).build();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.tradepro.config;
+
+import com.tradepro.model.ImportJob;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeArchiveBucket;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The managed set of indexes on the trades collection. Every index leads with userId, so
+ * each per-user query is an index range scan; the second key serves the status filters,
+ * the keyset listing, exit date lookups, symbol lookups and entry / exit day ranges respectively.
+ * The archive is read by user and month and searched by archived trade id. Finished import
+ * jobs expire through a TTL index.
+ * The set is ensured at startup and checked by {@link MongoIndexHealthIndicator}.
+ */
+@Component
+public class MongoIndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    static final Map<String, Document> TRADE_INDEXES = new LinkedHashMap<>();
+
+    static {
+        TRADE_INDEXES.put("userId_status", new Document("userId", 1).append("status", 1));
+        TRADE_INDEXES.put("userId_entryDate_id", new Document("userId", 1).append("entryDate", 1).append("_id", 1));
+        TRADE_INDEXES.put("userId_exitDate", new Document("userId", 1).append("exits.exitDate", 1));
+        TRADE_INDEXES.put("userId_symbol", new Document("userId", 1).append("symbol", 1));
+        TRADE_INDEXES.put("userId_entryDay", new Document("userId", 1).append("entryDay", 1));
+        TRADE_INDEXES.put("userId_exitDay", new Document("userId", 1).append("exits.exitDay", 1));
+    }
+
+    static final Map<String, Document> ARCHIVE_INDEXES = new LinkedHashMap<>();
+
+    static {
+        ARCHIVE_INDEXES.put("userId_month", new Document("userId", 1).append("month", 1));
+        ARCHIVE_INDEXES.put("tradeIds", new Document("tradeIds", 1));
+    }
+
+    static final Map<String, Document> IMPORT_JOB_INDEXES = new LinkedHashMap<>();
+
+    static {
+        IMPORT_JOB_INDEXES.put("expiresAt", new Document("expiresAt", 1));
+    }
+
+    // TTL indexes: MongoDB deletes a document once the date in the indexed field has passed
+    private static final Set<String> EXPIRING_INDEXES = Set.of("expiresAt");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        ensureIndexes(Trade.class, TRADE_INDEXES);
+        ensureIndexes(TradeArchiveBucket.class, ARCHIVE_INDEXES);
+        ensureIndexes(ImportJob.class, IMPORT_JOB_INDEXES);
+    }
+
+    /**
+     * Names of the managed indexes that do not exist on the trades, trades_archive and import_jobs collections.
+     */
+    public List<String> missingIndexes() {
+        List<String> missing = missingIndexes(Trade.class, TRADE_INDEXES);
+        missing.addAll(missingIndexes(TradeArchiveBucket.class, ARCHIVE_INDEXES));
+        missing.addAll(missingIndexes(ImportJob.class, IMPORT_JOB_INDEXES));
+        return missing;
+    }
+
+    /**
+     * Names of the managed indexes by collection, in the order they are ensured.
+     */
+    public Map<String, List<String>> managedIndexes() {
+        Map<String, List<String>> managed = new LinkedHashMap<>();
+        managed.put(mongoTemplate.getCollectionName(Trade.class), List.copyOf(TRADE_INDEXES.keySet()));
+        managed.put(mongoTemplate.getCollectionName(TradeArchiveBucket.class), List.copyOf(ARCHIVE_INDEXES.keySet()));
+        managed.put(mongoTemplate.getCollectionName(ImportJob.class), List.copyOf(IMPORT_JOB_INDEXES.keySet()));
+        return managed;
+    }
+
+    private void ensureIndexes(Class<?> entity, Map<String, Document> indexes) {
+        String collection = mongoTemplate.getCollectionName(entity);
+        for (Map.Entry<String, Document> index : indexes.entrySet()) {
+            try {
+                Index definition = new CompoundIndexDefinition(index.getValue()).named(index.getKey());
+                if (EXPIRING_INDEXES.contains(index.getKey())) {
+                    definition.expire(0);
+                }
+                mongoTemplate.indexOps(entity).ensureIndex(definition);
+                logger.info("Ensured index {} on {}", index.getKey(), collection);
+            } catch (Exception e) {
+                logger.error("Error creating index {} on {}: {}", index.getKey(), collection, e.getMessage());
+            }
+        }
+    }
+
+    private List<String> missingIndexes(Class<?> entity, Map<String, Document> indexes) {
+        List<String> existing = mongoTemplate.indexOps(entity).getIndexInfo().stream()
+            .map(IndexInfo::getName)
+            .toList();
+        return indexes.keySet().stream()
+            .filter(name -> !existing.contains(name))
+            .collect(Collectors.toList());
+    }
+}
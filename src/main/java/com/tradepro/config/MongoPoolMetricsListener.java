@@ -0,0 +1,113 @@
+package com.tradepro.config;
+
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes how long requests wait for a pooled connection and how full each server's pool is.
+ * Pool size, checked-out and wait queue gauges come from Micrometer's own pool listener.
+ * The sync driver raises the check-out events on the thread that asks for the connection,
+ * so the wait is timed per thread.
+ */
+public class MongoPoolMetricsListener implements ConnectionPoolListener {
+
+    private final MeterRegistry meterRegistry;
+    private final ThreadLocal<Long> checkOutStart = new ThreadLocal<>();
+    private final Map<ServerId, Pool> pools = new ConcurrentHashMap<>();
+
+    public MongoPoolMetricsListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        ServerId serverId = event.getServerId();
+        Tags tags = tags(serverId);
+        AtomicInteger checkedOut = new AtomicInteger();
+        int maxSize = event.getSettings().getMaxSize();
+
+        Timer checkOut = Timer.builder("mongodb.driver.pool.checkout")
+            .description("Time spent waiting for a pooled connection")
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge saturation = Gauge.builder("mongodb.driver.pool.saturation", checkedOut, c -> (double) c.get() / maxSize)
+            .description("Share of the pool's maximum size that is checked out")
+            .tags(tags)
+            .register(meterRegistry);
+        pools.put(serverId, new Pool(checkedOut, checkOut, List.of(checkOut, saturation)));
+    }
+
+    @Override
+    public void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        Pool pool = pools.remove(event.getServerId());
+        if (pool != null) {
+            pool.meters().forEach(meterRegistry::remove);
+        }
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        checkOutStart.set(System.nanoTime());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        Pool pool = pools.get(event.getConnectionId().getServerId());
+        if (pool != null) {
+            pool.checkedOut().incrementAndGet();
+            recordWait(pool);
+        }
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        Pool pool = pools.get(event.getServerId());
+        if (pool != null) {
+            recordWait(pool);
+        }
+        meterRegistry.counter("mongodb.driver.pool.checkout.failed",
+            tags(event.getServerId()).and("reason", event.getReason().name())).increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        Pool pool = pools.get(event.getConnectionId().getServerId());
+        if (pool != null) {
+            pool.checkedOut().decrementAndGet();
+        }
+    }
+
+    private void recordWait(Pool pool) {
+        Long start = checkOutStart.get();
+        if (start != null) {
+            checkOutStart.remove();
+            pool.checkOut().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Tags tags(ServerId serverId) {
+        return Tags.of("cluster.id", serverId.getClusterId().getValue(),
+            "server.address", serverId.getAddress().toString());
+    }
+
+    private record Pool(AtomicInteger checkedOut, Timer checkOut, List<Meter> meters) {
+    }
+}
@@ -1,7 +1,14 @@
 package com.tradepro.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
@@ -12,6 +19,7 @@ import org.springframework.retry.support.RetryTemplate;
 public class MongoRetryConfig {
 
     @Bean
+    @Primary
     public RetryTemplate retryTemplate() {
         RetryTemplate retryTemplate = new RetryTemplate();
         
@@ -28,4 +36,59 @@ public class MongoRetryConfig {
         
         return retryTemplate;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Retries versioned trade writes that lost a race against another write. Only optimistic
+     * locking conflicts are retried, after a short random pause so that competing writers
+     * spread out. Callers name the operation with the {@link RetryContext#NAME} attribute.
+     */
+    @Bean
+    public RetryTemplate tradeWriteRetryTemplate(MeterRegistry meterRegistry,
+                                                 @Value("${trades.write-retry.max-attempts:4}") int maxAttempts,
+                                                 @Value("${trades.write-retry.min-backoff-ms:10}") long minBackoffMs,
+                                                 @Value("${trades.write-retry.max-backoff-ms:100}") long maxBackoffMs) {
+        return RetryTemplate.builder()
+            .maxAttempts(maxAttempts)
+            .retryOn(OptimisticLockingFailureException.class)
+            .uniformRandomBackoff(minBackoffMs, maxBackoffMs)
+            .withListener(new ConflictMetricsListener(meterRegistry))
+            .build();
+    }
+
+    /**
+     * Counts version conflicts, the retries they caused and the writes that still failed after
+     * the last attempt, tagged with the operation, to show where writers contend.
+     */
+    static class ConflictMetricsListener implements RetryListener {
+
+        private final MeterRegistry meterRegistry;
+
+        ConflictMetricsListener(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            if (throwable instanceof OptimisticLockingFailureException) {
+                meterRegistry.counter("trades.write.conflicts", "operation", operation(context)).increment();
+            }
+        }
+
+        @Override
+        public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            // Every failed attempt was retried, except the last one of a write that failed
+            int retries = throwable == null ? context.getRetryCount() : context.getRetryCount() - 1;
+            if (retries > 0) {
+                meterRegistry.counter("trades.write.retries", "operation", operation(context)).increment(retries);
+            }
+            if (throwable instanceof OptimisticLockingFailureException) {
+                meterRegistry.counter("trades.write.retries.exhausted", "operation", operation(context)).increment();
+            }
+        }
+
+        private static String operation(RetryContext context) {
+            Object name = context.getAttribute(RetryContext.NAME);
+            return name != null ? name.toString() : "unknown";
+        }
+    }
+}
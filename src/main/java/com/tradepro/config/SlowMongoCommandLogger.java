@@ -0,0 +1,59 @@
+package com.tradepro.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs MongoDB commands that take longer than a threshold, with the collection they ran on, so
+ * slow queries can be found without turning on the profiler. Per-command timings are published
+ * by Micrometer's command listener.
+ */
+public class SlowMongoCommandLogger implements CommandListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowMongoCommandLogger.class);
+
+    private final long thresholdNanos;
+    // Collection of each running command by request id; the command document itself is only valid during the event
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    public SlowMongoCommandLogger(Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        BsonValue target = event.getCommand().get(event.getCommandName());
+        collections.put(event.getRequestId(), event.getDatabaseName() + "."
+            + (target != null && target.isString() ? target.asString().getValue() : "-"));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        long elapsed = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        if (elapsed >= thresholdNanos) {
+            logger.warn("Slow MongoDB command {} on {} took {} ms", event.getCommandName(),
+                collection, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        long elapsed = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        if (elapsed >= thresholdNanos) {
+            logger.warn("Slow MongoDB command {} on {} failed after {} ms", event.getCommandName(),
+                collection, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+}
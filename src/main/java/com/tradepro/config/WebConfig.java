@@ -1,6 +1,11 @@
 
 package com.tradepro.config;
 
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.tradepro.model.Trade;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -8,6 +13,13 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    // Trades are serialized in full unless a request selects fields (see TradeController)
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer tradeFieldsFilter() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+            .addFilter(Trade.JSON_FILTER, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -1,26 +1,52 @@
 package com.tradepro.controller;
 
 import com.tradepro.dto.BrokerTradeRecord;
+import com.tradepro.dto.BulkImportResult;
 import com.tradepro.dto.CsvTradeRecord;
+import com.tradepro.dto.TradePage;
 import com.tradepro.exception.CsvImportException;
-import com.tradepro.model.Exit;
+import com.tradepro.model.ImportJob;
 import com.tradepro.model.Trade;
+import com.tradepro.model.TradeArchiveBucket;
+import com.tradepro.service.AnalyticsCacheService;
 import com.tradepro.service.CsvImportService;
+import com.tradepro.service.ImportJobService;
+import com.tradepro.service.TradeArchiveService;
+import com.tradepro.service.TradeMetricsService;
 import com.tradepro.service.TradeService;
+import com.tradepro.service.UserAnalyticsService;
 import com.tradepro.service.UserService;
+import com.tradepro.service.UserTradeColumnsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * REST Controller for handling trade-related operations.
@@ -35,12 +61,33 @@ public class TradeController {
     @Autowired
     private TradeService tradeService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private CsvImportService csvImportService;
 
+    @Autowired
+    private UserAnalyticsService userAnalyticsService;
+
+    @Autowired
+    private AnalyticsCacheService analyticsCacheService;
+
+    @Autowired
+    private TradeMetricsService tradeMetricsService;
+
+    @Autowired
+    private UserTradeColumnsService userTradeColumnsService;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Autowired
+    private ImportJobService importJobService;
+
     /**
      * Adds a new trade to the system.
      * @param trade The trade object to be added
@@ -70,14 +117,123 @@ public class TradeController {
     }
 
     /**
-     * Retrieves all trades for a specific user.
+     * Retrieves the trades of a specific user, archived ones included. Without limit and cursor all
+     * trades are returned as one array; with either of them one page is returned in (entryDate, id) order.
      * @param userId The ID of the user whose trades are to be retrieved
-     * @return List of trades belonging to the user
+     * @param limit Maximum number of trades in the page
+     * @param cursor nextCursor of the previous page, omitted for the first page
+     * @param fields Comma-separated trade fields to return, all fields if omitted
+     * @param from First entry date to include (yyyy-MM-dd)
+     * @param to Last entry date to include (yyyy-MM-dd)
+     * @return List of trades belonging to the user, or one page of them
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Trade>> getTradesByUserId(@PathVariable String userId) {
-        List<Trade> trades = tradeService.getTradesByUserId(userId);
-        return ResponseEntity.ok(trades);
+    public ResponseEntity<?> getTradesByUserId(
+            @PathVariable String userId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            Set<String> selected = TradeService.parseFields(fields);
+            if (limit == null && cursor == null) {
+                List<Trade> trades = tradeService.getTradesByUserId(userId, selected, from, to);
+                return ResponseEntity.ok(withFields(trades, selected));
+            }
+            TradePage page = tradeService.getTradePage(userId, cursor,
+                limit != null ? limit : TradeService.DEFAULT_PAGE_SIZE, selected, from, to);
+            return ResponseEntity.ok(withFields(page, selected));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Streams all trades of a specific user, archived ones included, as newline-delimited JSON, in
+     * (entryDate, id) order.
+     * Trades are written as they arrive from the database cursor instead of being collected first.
+     * @param userId The ID of the user whose trades are to be retrieved
+     * @param fields Comma-separated trade fields to return, all fields if omitted
+     * @param from First entry date to include (yyyy-MM-dd)
+     * @param to Last entry date to include (yyyy-MM-dd)
+     * @return ResponseEntity streaming one JSON trade per line
+     */
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> streamTradesByUserId(
+            @PathVariable String userId,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Set<String> selected;
+        try {
+            selected = TradeService.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse(e.getMessage()));
+        }
+
+        ObjectWriter writer = selected == null ? objectMapper.writer() : objectMapper.writer(fieldsFilter(selected));
+        StreamingResponseBody body = out -> {
+            try (Stream<Trade> trades = tradeService.streamTradesByUserId(userId, selected, from, to)) {
+                Iterator<Trade> iterator = trades.iterator();
+                while (iterator.hasNext()) {
+                    out.write(writer.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Retrieves the archived trades of a specific user by month: closed trades moved to the archive
+     * once their last exit is older than trades.archive.min-age-days. They are listed with the
+     * user's other trades as well.
+     * @param userId The ID of the user whose archived trades are to be retrieved
+     * @param month Month of the trades' last exit (yyyy-MM); if omitted, the archived months are listed instead
+     * @return List of the archived trades of the month, or of the archived months with their trade count and P/L
+     */
+    @GetMapping("/user/{userId}/archive")
+    public ResponseEntity<?> getArchivedTrades(
+            @PathVariable String userId,
+            @RequestParam(required = false) String month) {
+        if (month != null) {
+            try {
+                return ResponseEntity.ok(tradeArchiveService.getTrades(userId, YearMonth.parse(month).toString()));
+            } catch (DateTimeParseException e) {
+                return ResponseEntity.badRequest().body(new ApiErrorResponse("Invalid month, expected yyyy-MM: " + month));
+            }
+        }
+
+        // A busy month can span several buckets
+        Map<String, Map<String, Object>> months = new LinkedHashMap<>();
+        for (TradeArchiveBucket bucket : tradeArchiveService.getSummaries(userId)) {
+            Map<String, Object> entry = months.computeIfAbsent(bucket.getMonth(), m -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("month", m);
+                row.put("tradeCount", 0L);
+                row.put("totalPnL", 0.0);
+                return row;
+            });
+            entry.put("tradeCount", (long) entry.get("tradeCount") + bucket.getSummary().getTradeCount());
+            entry.put("totalPnL", (double) entry.get("totalPnL") + bucket.getSummary().getProfitSum());
+        }
+        return ResponseEntity.ok(new ArrayList<>(months.values()));
+    }
+
+    // Limits the serialized trades in body to the selected fields
+    private Object withFields(Object body, Set<String> fields) {
+        if (fields == null) {
+            return body;
+        }
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(fieldsFilter(fields));
+        return value;
+    }
+
+    private static FilterProvider fieldsFilter(Set<String> fields) {
+        return new SimpleFilterProvider()
+            .addFilter(Trade.JSON_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields));
     }
 
     /**
@@ -91,27 +247,8 @@ public class TradeController {
         logger.info("Received update request for trade id: {} with data: {}", id, updatedTrade);
         logger.info("Entry date from request: {}", updatedTrade.getEntryDate());
         try {
-            Trade existingTrade = tradeService.findById(id);
-            if (existingTrade == null) {
-                throw new RuntimeException("Trade not found with id: " + id);
-            }
-
-            // Update fields while preserving the entryDate if it exists in the request
-            existingTrade.setSymbol(updatedTrade.getSymbol());
-            existingTrade.setAction(updatedTrade.getAction());
-            existingTrade.setQuantity(updatedTrade.getQuantity());
-            existingTrade.setPrice(updatedTrade.getPrice());
-            existingTrade.setType(updatedTrade.getType());
-            existingTrade.setOptionType(updatedTrade.getOptionType());
-            existingTrade.setStrategy(updatedTrade.getStrategy());
-            existingTrade.setNotes(updatedTrade.getNotes());
-            
-            // Only update entryDate if it's provided in the request
-            if (updatedTrade.getEntryDate() != null) {
-                existingTrade.setEntryDate(updatedTrade.getEntryDate());
-            }
-
-            Trade savedTrade = tradeService.save(existingTrade);
+            // Only fields present in the request are changed; entryDate is kept if omitted
+            Trade savedTrade = tradeService.updateTrade(id, updatedTrade);
             logger.info("Trade updated successfully: {}", savedTrade);
             return ResponseEntity.ok(savedTrade);
         } catch (Exception e) {
@@ -134,6 +271,8 @@ public class TradeController {
             Trade exitedTrade = tradeService.exitTrade(id, request.getExitDate(), request.getExitPrice(), request.getExitQuantity());
             logger.info("Trade exited successfully: {}", exitedTrade);
             return ResponseEntity.ok(exitedTrade);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error exiting trade", e);
             return ResponseEntity.status(500).body("An unexpected error occurred: " + e.getMessage());
@@ -143,78 +282,18 @@ public class TradeController {
     /**
      * Retrieves trade statistics including counts, win ratio, and profit metrics.
      * @param token Authorization token for user identification
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
      * @return ResponseEntity containing trade statistics
      */
     @GetMapping("/count")
-    public ResponseEntity<?> getTradesCounts(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getTradesCounts(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             String userId = extractUserIdFromToken(token);
             logger.info("Fetching trade counts for userId: {}", userId);
-            List<Trade> allTrades = tradeService.getTradesByUserId(userId);
-            
-            // Calculate counts
-            long totalTrades = allTrades.size();
-            long openTrades = allTrades.stream()
-                .filter(trade -> "OPEN".equals(trade.getStatus()))
-                .count();
-            long closedTrades = allTrades.stream()
-                .filter(trade -> "CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus()))
-                .count();
-
-            // Calculate win ratio
-            double winRatio = 0.0;
-            if (closedTrades > 0) {
-                long winningTrades = allTrades.stream()
-                    .filter(trade -> 
-                        ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                        && trade.getTotalProfit() != null 
-                        && trade.getTotalProfit() > 0)
-                    .count();
-                winRatio = (double) winningTrades / closedTrades;
-            }
-
-            // Calculate average profit for closed trades
-            double avgProfit = 0.0;
-            if (closedTrades > 0) {
-                avgProfit = allTrades.stream()
-                    .filter(trade -> 
-                        ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                        && trade.getTotalProfit() != null)
-                    .mapToDouble(Trade::getTotalProfit)
-                    .average()
-                    .orElse(0.0);
-            }
-
-            // Calculate biggest win and loss
-            double biggestWin = allTrades.stream()
-                .filter(trade -> 
-                    ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                    && trade.getTotalProfit() != null
-                    && trade.getTotalProfit() > 0)
-                .mapToDouble(Trade::getTotalProfit)
-                .max()
-                .orElse(0.0);
-
-            double biggestLoss = allTrades.stream()
-                .filter(trade -> 
-                    ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                    && trade.getTotalProfit() != null
-                    && trade.getTotalProfit() < 0)
-                .mapToDouble(Trade::getTotalProfit)
-                .min()
-                .orElse(0.0);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("total", totalTrades);
-            response.put("open", openTrades);
-            response.put("closed", closedTrades);
-            response.put("winRatio", winRatio);
-            response.put("avgProfit", avgProfit);
-            response.put("biggestWin", biggestWin > 0 ? biggestWin : null);
-            response.put("biggestLoss", biggestLoss < 0 ? biggestLoss : null);
-
-            logger.info("Trade statistics retrieved successfully: {}", response);
-            return ResponseEntity.ok(response);
+            return cachedAnalytics(ifNoneMatch, analyticsCacheService.keyFor(userId, "count"),
+                () -> tradeMetricsService.getCounts(userAnalyticsService.getSnapshot(userId)));
         } catch (Exception e) {
             logger.error("Error fetching trade statistics", e);
             return ResponseEntity.status(500).body("An unexpected error occurred: " + e.getMessage());
@@ -224,79 +303,26 @@ public class TradeController {
     /**
      * Retrieves profit/loss chart data for a specific time frame.
      * @param token Authorization token for user identification
-     * @param timeFrame Time period for which to retrieve data (1W, 1M, 3M, 6M, 1Y, ALL)
+     * @param timeFrame Time period for which to retrieve data (1W, 1M, 3M, 6M, YTD, ALL)
+     * @param granularity Bucket size of the points (DAY, WEEK, MONTH or AUTO), DAY by default
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
      * @return ResponseEntity containing chart data points
      */
     @GetMapping("/pnl-chart")
     public ResponseEntity<?> getPnLChartData(
             @RequestHeader("Authorization") String token,
-            @RequestParam String timeFrame) {
+            @RequestParam String timeFrame,
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             String userId = extractUserIdFromToken(token);
-            logger.info("Fetching P/L chart data for userId: {} and timeFrame: {}", userId, timeFrame);
-            
-            // Calculate start date based on timeFrame
-            LocalDate endDate = LocalDate.now();
-            LocalDate startDate = switch (timeFrame) {
-                case "1W" -> endDate.minusWeeks(1);
-                case "1M" -> endDate.minusMonths(1);
-                case "3M" -> endDate.minusMonths(3);
-                case "6M" -> endDate.minusMonths(6);
-                case "YTD" -> LocalDate.of(endDate.getYear(), 1, 1); // Start from January 1st of current year
-                default -> LocalDate.parse("2000-01-01"); // For "ALL" time frame
-            };
-
-            logger.info("Date range: {} to {}", startDate, endDate);
-
-            // Get all closed trades
-            List<Trade> allTrades = tradeService.getTradesByUserId(userId);
-            List<Trade> closedTrades = allTrades.stream()
-                .filter(trade -> 
-                    ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                    && trade.getTotalProfit() != null
-                    && !trade.getExits().isEmpty()
-                )
-                .toList();
-
-            logger.info("Found {} closed trades", closedTrades.size());
-
-            // Filter and transform trades into chart data
-            Map<String, Double> dailyPnL = new HashMap<>();
-
-            for (Trade trade : closedTrades) {
-                try {
-                    Exit lastExit = trade.getExits().get(trade.getExits().size() - 1);
-                    String exitDateStr = lastExit.getExitDate();
-                    logger.debug("Processing trade {} with exit date {}", trade.getId(), exitDateStr);
-
-                    LocalDate exitDate = LocalDate.parse(exitDateStr.split("T")[0]);
-                    
-                    if (!exitDate.isBefore(startDate) && !exitDate.isAfter(endDate)) {
-                        String dateKey = exitDate.toString();
-                        dailyPnL.merge(dateKey, trade.getTotalProfit(), Double::sum);
-                        logger.debug("Added P/L {} for date {}", trade.getTotalProfit(), dateKey);
-                    } else {
-                        logger.debug("Trade date {} outside range {} to {}", exitDate, startDate, endDate);
-                    }
-                } catch (Exception e) {
-                    logger.warn("Error processing trade {}: {}", trade.getId(), e.getMessage());
-                }
-            }
-
-            List<Map<String, Object>> chartData = dailyPnL.entrySet().stream()
-                .map(entry -> {
-                    Map<String, Object> point = new HashMap<>();
-                    point.put("date", entry.getKey());
-                    point.put("pnl", entry.getValue());
-                    return point;
-                })
-                .sorted((a, b) -> ((String) a.get("date")).compareTo((String) b.get("date")))
-                .collect(Collectors.toList());
-
-            logger.info("Generated {} chart data points", chartData.size());
-            logger.debug("Chart data: {}", chartData);
+            logger.info("Fetching P/L chart data for userId: {} and timeFrame: {}, granularity: {}", userId, timeFrame, granularity);
 
-            return ResponseEntity.ok(chartData);
+            // Range scan over the pre-aggregated P/L series
+            return cachedAnalytics(ifNoneMatch, analyticsCacheService.keyFor(userId, "pnl-chart", timeFrame, granularity),
+                () -> tradeMetricsService.getPnLChart(userAnalyticsService.getSnapshot(userId), timeFrame, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error fetching P/L chart data", e);
             return ResponseEntity.status(500).body(Map.of(
@@ -306,68 +332,53 @@ public class TradeController {
         }
     }
 
+    /**
+     * Retrieves the cumulative P/L curve and its drawdown statistics for a date range.
+     * @param token Authorization token for user identification
+     * @param from First day of the range (yyyy-MM-dd), start of the curve if omitted
+     * @param to Last day of the range (yyyy-MM-dd), today if omitted
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
+     * @return ResponseEntity containing the curve points and drawdown metrics
+     */
+    @GetMapping("/equity-curve")
+    public ResponseEntity<?> getEquityCurve(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            logger.info("Fetching equity curve for userId: {} from {} to {}", userId, from, to);
+            return cachedAnalytics(ifNoneMatch, analyticsCacheService.keyFor(userId, "equity-curve", from, to),
+                () -> tradeMetricsService.getEquityCurve(userId, from, to));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse("Invalid date, expected yyyy-MM-dd: " + e.getParsedString()));
+        } catch (Exception e) {
+            logger.error("Error calculating equity curve", e);
+            return ResponseEntity.status(500).body(Map.of(
+                "error", "An unexpected error occurred",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Retrieves profit/loss data grouped by strategy.
      * @param token Authorization token for user identification
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
      * @return ResponseEntity containing strategy-wise P/L data
      */
     @GetMapping("/strategy-pnl")
-    public ResponseEntity<?> getStrategyPnL(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getStrategyPnL(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             String userId = extractUserIdFromToken(token);
             logger.info("Fetching strategy P/L for userId: {}", userId);
             
-            List<Trade> allTrades = tradeService.getTradesByUserId(userId);
-            
-            // Group trades by strategy and calculate total P/L
-            Map<String, Double> strategyPnL = allTrades.stream()
-                .filter(trade -> 
-                    ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                    && trade.getTotalProfit() != null
-                    && trade.getStrategy() != null
-                    && !trade.getStrategy().isEmpty()
-                )
-                .collect(Collectors.groupingBy(
-                    Trade::getStrategy,
-                    Collectors.summingDouble(Trade::getTotalProfit)
-                ));
-
-            // Calculate additional metrics for each strategy
-            List<Map<String, Object>> strategyMetrics = strategyPnL.entrySet().stream()
-                .map(entry -> {
-                    String strategy = entry.getKey();
-                    double totalPnL = entry.getValue();
-                    
-                    // Count trades for this strategy
-                    long totalTrades = allTrades.stream()
-                        .filter(t -> strategy.equals(t.getStrategy()) 
-                            && ("CLOSED".equals(t.getStatus()) || "PARTIALLY_CLOSED".equals(t.getStatus())))
-                        .count();
-                    
-                    // Calculate win ratio
-                    long winningTrades = allTrades.stream()
-                        .filter(t -> strategy.equals(t.getStrategy()) 
-                            && ("CLOSED".equals(t.getStatus()) || "PARTIALLY_CLOSED".equals(t.getStatus()))
-                            && t.getTotalProfit() != null 
-                            && t.getTotalProfit() > 0)
-                        .count();
-                    
-                    double winRatio = totalTrades > 0 ? (double) winningTrades / totalTrades : 0;
-
-                    Map<String, Object> metrics = new HashMap<>();
-                    metrics.put("strategy", strategy);
-                    metrics.put("totalPnL", totalPnL);
-                    metrics.put("tradeCount", totalTrades);
-                    metrics.put("winRatio", winRatio);
-                    metrics.put("avgPnL", totalTrades > 0 ? totalPnL / totalTrades : 0);
-                    
-                    return metrics;
-                })
-                .sorted((a, b) -> Double.compare((Double) b.get("totalPnL"), (Double) a.get("totalPnL")))
-                .collect(Collectors.toList());
-
-            logger.info("Strategy P/L calculated successfully: {}", strategyMetrics);
-            return ResponseEntity.ok(strategyMetrics);
+            // Strategy buckets are maintained in the analytics snapshot
+            return cachedAnalytics(ifNoneMatch, analyticsCacheService.keyFor(userId, "strategy-pnl"),
+                () -> tradeMetricsService.getStrategyPnL(userAnalyticsService.getSnapshot(userId)));
         } catch (Exception e) {
             logger.error("Error calculating strategy P/L", e);
             return ResponseEntity.status(500).body(Map.of(
@@ -390,49 +401,73 @@ public class TradeController {
         return userService.getUserIdFromToken(token);
     }
 
+    /**
+     * Non-blocking variant of {@link #extractUserIdFromToken}: the user lookup runs on a
+     * bounded elastic thread, not the request thread.
+     */
+    private Mono<String> userIdFromTokenReactive(String token) {
+        return Mono.fromCallable(() -> extractUserIdFromToken(token))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Serves an analytics result through the versioned result cache. Answers 304 without
+     * computing anything when the client already holds the result of the current data version.
+     */
+    private ResponseEntity<?> cachedAnalytics(String ifNoneMatch, AnalyticsCacheService.Key key, Supplier<?> loader) {
+        String etag = key.etag();
+        if (matchesETag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(analyticsCacheService.get(key, loader));
+    }
+
+    /**
+     * Non-blocking variant of {@link #cachedAnalytics}.
+     */
+    private Mono<ResponseEntity<?>> cachedAnalyticsReactive(String ifNoneMatch, AnalyticsCacheService.Key key,
+                                                            Supplier<Mono<?>> loader) {
+        String etag = key.etag();
+        if (matchesETag(ifNoneMatch, etag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return analyticsCacheService.getReactive(key, loader)
+            .map(body -> ResponseEntity.ok().eTag(etag).body(body));
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Retrieves yearly profit/loss total.
      * @param token Authorization token for user identification
      * @param year The year for which to calculate total P/L
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
      * @return ResponseEntity containing yearly P/L data
      */
     @GetMapping("/yearly-pnl")
     public ResponseEntity<?> getYearlyPnL(
             @RequestHeader("Authorization") String token,
-            @RequestParam Integer year) {
+            @RequestParam Integer year,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             String userId = extractUserIdFromToken(token);
             logger.info("Fetching yearly P/L for userId: {} and year: {}", userId, year);
-            
-            List<Trade> allTrades = tradeService.getTradesByUserId(userId);
-            
-            // Calculate total P/L only for trades that were closed in the specified year
-            double yearlyTotal = allTrades.stream()
-                .filter(trade -> 
-                    ("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus())) 
-                    && trade.getTotalProfit() != null
-                    && !trade.getExits().isEmpty()
-                    && trade.getExits().stream()
-                        .anyMatch(exit -> {
-                            String exitYear = exit.getExitDate().substring(0, 4);
-                            return exitYear.equals(String.valueOf(year));
-                        })
-                )
-                .mapToDouble(trade -> {
-                    // Only count profits from exits in the specified year
-                    return trade.getExits().stream()
-                        .filter(exit -> exit.getExitDate().startsWith(String.valueOf(year)))
-                        .mapToDouble(Exit::getProfit)
-                        .sum();
-                })
-                .sum();
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("year", year);
-            response.put("totalPnL", yearlyTotal);
-
-            logger.info("Yearly P/L calculated successfully for {}: {}", year, yearlyTotal);
-            return ResponseEntity.ok(response);
+            return cachedAnalytics(ifNoneMatch, analyticsCacheService.keyFor(userId, "yearly-pnl", year),
+                () -> tradeMetricsService.getYearlyPnL(userAnalyticsService.getSnapshot(userId), year));
         } catch (Exception e) {
             logger.error("Error calculating yearly P/L", e);
             return ResponseEntity.status(500).body(Map.of(
@@ -442,94 +477,42 @@ public class TradeController {
         }
     }
 
+    /**
+     * Retrieves realized P/L per year, quarter and month, bucketed by exit date.
+     * @param token Authorization token for user identification
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
+     * @return ResponseEntity containing the yearly, quarterly and monthly P/L breakdown
+     */
+    @GetMapping("/pnl-by-period")
+    public Mono<ResponseEntity<?>> getPnLByPeriod(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        // Served on the reactive driver, so no request thread waits for the aggregation
+        return userIdFromTokenReactive(token)
+            .flatMap(userId -> {
+                logger.info("Fetching P/L by period for userId: {}", userId);
+                return analyticsCacheService.keyForReactive(userId, "pnl-by-period")
+                    .flatMap(key -> cachedAnalyticsReactive(ifNoneMatch, key,
+                        () -> tradeMetricsService.getPnLByPeriodReactive(userId)));
+            })
+            .onErrorResume(e -> {
+                logger.error("Error calculating P/L by period", e);
+                return Mono.just(ResponseEntity.status(500).body(Map.of(
+                    "error", "An unexpected error occurred",
+                    "message", String.valueOf(e.getMessage())
+                )));
+            });
+    }
+
     // Update the profit metrics endpoint
     @GetMapping("/profit-metrics")
-    public ResponseEntity<Map<String, Object>> getProfitMetrics(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getProfitMetrics(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             String userId = extractUserIdFromToken(token);
-            List<Trade> userTrades = tradeService.getTradesByUserId(userId);
-            
-            // Filter only closed trades
-            List<Trade> closedTrades = userTrades.stream()
-                .filter(t -> "CLOSED".equals(t.getStatus()) || "PARTIALLY_CLOSED".equals(t.getStatus()))
-                .toList();
-            
-            // Calculate gross profits and losses
-            double grossProfits = closedTrades.stream()
-                .filter(t -> t.getTotalProfit() != null && t.getTotalProfit() > 0)
-                .mapToDouble(Trade::getTotalProfit)
-                .sum();
-                
-            double grossLosses = Math.abs(closedTrades.stream()
-                .filter(t -> t.getTotalProfit() != null && t.getTotalProfit() < 0)
-                .mapToDouble(Trade::getTotalProfit)
-                .sum());
-                
-            // Calculate profit factor
-            double profitFactor = grossLosses > 0 ? grossProfits / grossLosses : grossProfits;
-
-            // Calculate Maximum Drawdown
-            double maxDrawdown = 0.0;
-            double peak = 0.0;
-            double currentEquity = 0.0;
-
-            // Sort trades by date
-            List<Trade> sortedTrades = closedTrades.stream()
-                .filter(t -> t.getTotalProfit() != null && !t.getExits().isEmpty())
-                .sorted((t1, t2) -> {
-                    String date1 = t1.getExits().get(t1.getExits().size() - 1).getExitDate();
-                    String date2 = t2.getExits().get(t2.getExits().size() - 1).getExitDate();
-                    return date1.compareTo(date2);
-                })
-                .toList();
-
-            // Calculate running equity and track maximum drawdown
-            for (Trade trade : sortedTrades) {
-                currentEquity += trade.getTotalProfit();
-                if (currentEquity > peak) {
-                    peak = currentEquity;
-                }
-                double drawdown = peak - currentEquity;
-                if (drawdown > maxDrawdown) {
-                    maxDrawdown = drawdown;
-                }
-            }
-            
-            // Calculate Trading Consistency Score (0-100)
-            double winRatio = closedTrades.stream()
-                .filter(t -> t.getTotalProfit() != null && t.getTotalProfit() > 0)
-                .count() / (double) closedTrades.size();
-                
-            double avgProfit = closedTrades.stream()
-                .filter(t -> t.getTotalProfit() != null)
-                .mapToDouble(Trade::getTotalProfit)
-                .average()
-                .orElse(0.0);
-                
-            // Calculate trade frequency score (more regular trading = higher score)
-            double tradeFrequencyScore = Math.min(closedTrades.size() / 20.0, 1.0); // Normalize to max 1.0
-            
-            // Combine factors for consistency score
-            double consistencyScore = (
-                (winRatio * 40) +                    // Win ratio contributes 40%
-                (profitFactor / 3.0 * 30) +          // Profit factor contributes 30% (normalized to max ~3.0)
-                (tradeFrequencyScore * 30)           // Trade frequency contributes 30%
-            );
-            
-            // Ensure score is between 0 and 100
-            consistencyScore = Math.min(Math.max(consistencyScore, 0), 100);
-            
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("profitFactor", profitFactor);
-            metrics.put("grossProfits", grossProfits);
-            metrics.put("grossLosses", grossLosses);
-            metrics.put("maxDrawdown", maxDrawdown);
-            metrics.put("consistencyScore", consistencyScore);
-            
-            logger.info("Profit metrics calculated - Factor: {}, Profits: {}, Losses: {}, MaxDrawdown: {}, Consistency Score: {}", 
-                       profitFactor, grossProfits, grossLosses, maxDrawdown, consistencyScore);
-            
-            return ResponseEntity.ok(metrics);
+            return cachedAnalytics(ifNoneMatch, analyticsCacheService.keyFor(userId, "profit-metrics"),
+                () -> tradeMetricsService.getProfitMetrics(userAnalyticsService.getSnapshot(userId)));
         } catch (Exception e) {
             logger.error("Error calculating profit metrics", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -537,54 +520,80 @@ public class TradeController {
     }
 
     @GetMapping("/duration-metrics")
-    public ResponseEntity<Map<String, Object>> getTradeDurationMetrics(@RequestHeader("Authorization") String token) {
+    public Mono<ResponseEntity<?>> getTradeDurationMetrics(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        // Served on the reactive driver; trades are folded into the columns as they arrive
+        return userIdFromTokenReactive(token)
+            .flatMap(userId -> analyticsCacheService.keyForReactive(userId, "duration-metrics")
+                .flatMap(key -> cachedAnalyticsReactive(ifNoneMatch, key,
+                    () -> tradeMetricsService.getDurationMetricsReactive(userId))))
+            .onErrorResume(e -> {
+                logger.error("Error calculating trade duration metrics", e);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+
+    /**
+     * Retrieves several dashboard sections in one call, sharing a single token parse and
+     * a single analytics snapshot read between them.
+     * @param token Authorization token for user identification
+     * @param sections Comma-separated sections to include (count, pnlChart, strategyPnl, yearlyPnl,
+     *                 profitMetrics, durationMetrics), all of them if omitted
+     * @param timeFrame Time frame of the P/L chart (1W, 1M, 3M, 6M, YTD, ALL)
+     * @param granularity Bucket size of the P/L chart (DAY, WEEK, MONTH or AUTO)
+     * @param year Year of the yearly P/L, the current year if omitted
+     * @param ifNoneMatch ETag of a previously returned result, answered with 304 if still current
+     * @return ResponseEntity containing one entry per requested section
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<?> getDashboard(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) List<String> sections,
+            @RequestParam(defaultValue = "ALL") String timeFrame,
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) Integer year,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             String userId = extractUserIdFromToken(token);
-            List<Trade> userTrades = tradeService.getTradesByUserId(userId);
-            
-            // Filter closed trades
-            List<Trade> closedTrades = userTrades.stream()
-                .filter(t -> ("CLOSED".equals(t.getStatus()) || "PARTIALLY_CLOSED".equals(t.getStatus()))
-                    && t.getEntryDate() != null 
-                    && !t.getExits().isEmpty())
-                .toList();
-
-            // Calculate duration for each trade
-            List<Map<String, Object>> tradeDurations = closedTrades.stream()
-                .map(trade -> {
-                    LocalDate entryDate = LocalDate.parse(trade.getEntryDate().split("T")[0]);
-                    LocalDate exitDate = LocalDate.parse(
-                        trade.getExits().get(trade.getExits().size() - 1)
-                            .getExitDate().split("T")[0]
-                    );
-                    long daysHeld = ChronoUnit.DAYS.between(entryDate, exitDate);
-
-                    Map<String, Object> tradeInfo = new HashMap<>();
-                    tradeInfo.put("tradeId", trade.getId());
-                    tradeInfo.put("symbol", trade.getSymbol());
-                    tradeInfo.put("daysHeld", daysHeld);
-                    tradeInfo.put("entryDate", entryDate);
-                    tradeInfo.put("exitDate", exitDate);
-                    return tradeInfo;
-                })
-                .collect(Collectors.toList());
-
-            // Calculate average duration
-            double averageDuration = tradeDurations.stream()
-                .mapToLong(trade -> (Long) trade.get("daysHeld"))
-                .average()
-                .orElse(0.0);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("averageDuration", averageDuration);
-            response.put("tradeDurations", tradeDurations);
-            
-            logger.info("Trade duration metrics calculated - Average: {} days", averageDuration);
-            
-            return ResponseEntity.ok(response);
+            List<String> requested = sections == null || sections.isEmpty()
+                ? TradeMetricsService.SECTIONS
+                : sections.stream().map(String::trim).distinct().toList();
+            int dashboardYear = year != null ? year : LocalDate.now().getYear();
+            logger.info("Fetching dashboard sections {} for userId: {}", requested, userId);
+
+            return cachedAnalytics(ifNoneMatch,
+                analyticsCacheService.keyFor(userId, "dashboard", requested, timeFrame, granularity, dashboardYear),
+                () -> tradeMetricsService.getDashboard(userId, requested, timeFrame, granularity, dashboardYear));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse(e.getMessage()));
         } catch (Exception e) {
-            logger.error("Error calculating trade duration metrics", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            logger.error("Error building dashboard", e);
+            return ResponseEntity.status(500).body(Map.of(
+                "error", "An unexpected error occurred",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Rebuilds the user's analytics snapshot from their trades.
+     * @param token Authorization token for user identification
+     * @return ResponseEntity containing every snapshot value that had drifted from the rebuilt one
+     */
+    @PostMapping("/analytics/rebuild")
+    public ResponseEntity<?> rebuildAnalytics(@RequestHeader("Authorization") String token) {
+        try {
+            String userId = extractUserIdFromToken(token);
+            Map<String, Object> drift = userAnalyticsService.checkDrift(userId);
+            logger.info("Analytics snapshot rebuilt for userId: {} - drift: {}", userId, drift);
+            return ResponseEntity.ok(Map.of("drift", drift));
+        } catch (Exception e) {
+            logger.error("Error rebuilding analytics snapshot", e);
+            return ResponseEntity.status(500).body(Map.of(
+                "error", "An unexpected error occurred",
+                "message", e.getMessage()
+            ));
         }
     }
 
@@ -597,18 +606,14 @@ public class TradeController {
             logger.info("Processing CSV import for userId: {} with {} records", userId, csvRecords.size());
 
             List<Trade> processedTrades = csvImportService.processCsvRecords(csvRecords, userId);
-            
-            // Save all processed trades
-            List<Trade> savedTrades = new ArrayList<>();
-            for (Trade trade : processedTrades) {
-                savedTrades.add(tradeService.save(trade));
-            }
+            BulkImportResult result = tradeService.bulkInsert(processedTrades);
 
-            logger.info("Successfully imported {} trades", savedTrades.size());
+            logger.info("Successfully imported {} of {} trades", result.getSaved().size(), processedTrades.size());
             return ResponseEntity.ok(Map.of(
                 "message", "Successfully imported trades",
-                "count", savedTrades.size(),
-                "trades", savedTrades
+                "count", result.getSaved().size(),
+                "trades", result.getSaved(),
+                "failures", result.getFailures()
             ));
         } catch (Exception e) {
             logger.error("Error importing CSV trades", e);
@@ -643,44 +648,7 @@ public class TradeController {
             try {
                 // Parse and process the trades
                 List<BrokerTradeRecord> brokerRecords = csvImportService.detectAndParseBrokerFormat(content);
-                List<Trade> importedTrades = csvImportService.processBrokerRecords(brokerRecords, userId);
-                
-                // Save each trade to the database and collect results
-                List<Trade> savedTrades = new ArrayList<>();
-                for (Trade trade : importedTrades) {
-                    try {
-                        // Ensure trade has userId
-                        trade.setUserId(userId);
-                        
-                        // Save using tradeService
-                        Trade savedTrade = tradeService.addTrade(trade);
-                        if (savedTrade != null) {
-                            savedTrades.add(savedTrade);
-                            logger.debug("Successfully saved trade: {} for symbol: {}", 
-                                savedTrade.getId(), savedTrade.getSymbol());
-                        } else {
-                            logger.error("Failed to save trade for symbol: {}", trade.getSymbol());
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error saving trade for symbol {}: {}", 
-                            trade.getSymbol(), e.getMessage());
-                    }
-                }
-                
-                logger.info("Successfully processed and saved {} out of {} trades from file: {}", 
-                    savedTrades.size(), importedTrades.size(), fileName);
-                
-                if (savedTrades.isEmpty()) {
-                    throw new RuntimeException("No trades were saved to the database");
-                }
-                
-                // Return the saved trades
-                return ResponseEntity.ok(Map.of(
-                    "message", String.format("Successfully imported %d trades", savedTrades.size()),
-                    "count", savedTrades.size(),
-                    "trades", savedTrades
-                ));
-                    
+                return saveBrokerRecords(brokerRecords, userId, fileName);
             } catch (CsvImportException e) {
                 logger.error("CSV import error for file {}: {}", fileName, e.getMessage());
                 return ResponseEntity
@@ -695,6 +663,142 @@ public class TradeController {
         }
     }
 
+    /**
+     * Imports a broker export uploaded as a file. The upload is read line by line and every line
+     * is parsed as it is read, so unlike the JSON variant the export is never held in memory whole.
+     * @param file The Fidelity or Robinhood CSV export
+     * @param userId The ID of the user the trades are imported for
+     * @return The saved trades and the trades that could not be saved
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importTradesFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam String userId) {
+        String fileName = file.getOriginalFilename();
+        logger.info("Processing upload of file: {} ({} bytes)", fileName, file.getSize());
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse("No content provided"));
+        }
+        if (userId.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse("User ID is required"));
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            List<BrokerTradeRecord> brokerRecords = new ArrayList<>();
+            csvImportService.parseBrokerRecords(reader, brokerRecords::add);
+            return saveBrokerRecords(brokerRecords, userId, fileName);
+        } catch (CsvImportException e) {
+            logger.error("CSV import error for file {}: {}", fileName, e.getMessage());
+            return ResponseEntity.badRequest().body(new ApiErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Unexpected error during import: ", e);
+            return ResponseEntity
+                .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ApiErrorResponse("Failed to process file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Queues the import of a broker export uploaded as a file and returns at once; the import
+     * is parsed, matched and saved in the background.
+     * @param token Authorization token of the user, who must be the one the trades are imported for
+     * @param file The Fidelity or Robinhood CSV export
+     * @param userId The ID of the user the trades are imported for
+     * @return The queued job, whose jobId is polled at /import/{jobId} or followed at /import/{jobId}/events
+     */
+    @PostMapping(value = "/import/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submitImportJob(
+            @RequestHeader("Authorization") String token,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam String userId) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse("No content provided"));
+        }
+        if (userId.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(new ApiErrorResponse("User ID is required"));
+        }
+        if (!userId.equals(extractUserIdFromToken(token))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(new ApiErrorResponse("Trades can only be imported for your own account"));
+        }
+
+        try {
+            ImportJob job = importJobService.submit(file, userId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(importJobService.progressOf(job));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Import of file {} rejected, the import queue is full", file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ApiErrorResponse("Too many imports in progress, please try again later"));
+        } catch (Exception e) {
+            logger.error("Unexpected error queuing import: ", e);
+            return ResponseEntity
+                .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ApiErrorResponse("Failed to process file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the status and progress of an import job.
+     * @param token Authorization token of the user the job imports trades for
+     * @param jobId The ID of the import job
+     * @return Status, rows parsed, trades matched, saved and failed, and the errors of the job;
+     *         404 if the job is not one of the user's
+     */
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<?> getImportJob(@RequestHeader("Authorization") String token, @PathVariable String jobId) {
+        ImportJob job = importJobService.getJob(jobId);
+        if (job == null || !job.getUserId().equals(extractUserIdFromToken(token))) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiErrorResponse("Import job not found"));
+        }
+        return ResponseEntity.ok(importJobService.progressOf(job));
+    }
+
+    /**
+     * Streams the progress of an import job as Server-Sent Events until the job finishes.
+     * @param token Authorization token of the user the job imports trades for
+     * @param jobId The ID of the import job
+     * @return "progress" events with the same fields as /import/{jobId}; 404 if the job is not one of the user's
+     */
+    @GetMapping(value = "/import/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImportJob(
+            @RequestHeader("Authorization") String token,
+            @PathVariable String jobId) {
+        SseEmitter emitter = importJobService.subscribe(jobId, extractUserIdFromToken(token));
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Pairs the parsed records into trades of the user and saves them in bulk
+    private ResponseEntity<?> saveBrokerRecords(List<BrokerTradeRecord> brokerRecords, String userId, String fileName) {
+        List<Trade> importedTrades = csvImportService.processBrokerRecords(brokerRecords, userId);
+
+        // Ensure every trade has the userId, then save them in bulk
+        importedTrades.forEach(trade -> trade.setUserId(userId));
+        BulkImportResult result = tradeService.bulkInsert(importedTrades);
+        for (BulkImportResult.Failure failure : result.getFailures()) {
+            logger.error("Error saving trade for symbol {}: {}", failure.getSymbol(), failure.getMessage());
+        }
+
+        logger.info("Successfully processed and saved {} out of {} trades from file: {}",
+            result.getSaved().size(), importedTrades.size(), fileName);
+
+        if (result.getSaved().isEmpty()) {
+            throw new RuntimeException("No trades were saved to the database");
+        }
+
+        // Return the saved trades
+        return ResponseEntity.ok(Map.of(
+            "message", String.format("Successfully imported %d trades", result.getSaved().size()),
+            "count", result.getSaved().size(),
+            "trades", result.getSaved(),
+            "failures", result.getFailures()
+        ));
+    }
+
     @PostMapping("/import/debug")
     public ResponseEntity<?> debugCsvImport(@RequestBody Map<String, String> payload) {
         try {
@@ -0,0 +1,54 @@
+package com.tradepro.dto;
+
+import com.tradepro.model.Trade;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk trade insert: the trades that were stored and, for every trade that was
+ * not, its position in the submitted list and the reason.
+ */
+public class BulkImportResult {
+    private int requested;
+    private List<Trade> saved = new ArrayList<>();
+    private List<Failure> failures = new ArrayList<>();
+
+    public BulkImportResult(int requested) {
+        this.requested = requested;
+    }
+
+    public int getRequested() { return requested; }
+    public void setRequested(int requested) { this.requested = requested; }
+
+    public List<Trade> getSaved() { return saved; }
+    public void setSaved(List<Trade> saved) { this.saved = saved; }
+
+    public List<Failure> getFailures() { return failures; }
+    public void setFailures(List<Failure> failures) { this.failures = failures; }
+
+    public List<String> getSavedIds() {
+        return saved.stream().map(Trade::getId).toList();
+    }
+
+    public static class Failure {
+        private int index;
+        private String symbol;
+        private String message;
+
+        public Failure(int index, String symbol, String message) {
+            this.index = index;
+            this.symbol = symbol;
+            this.message = message;
+        }
+
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public String getSymbol() { return symbol; }
+        public void setSymbol(String symbol) { this.symbol = symbol; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
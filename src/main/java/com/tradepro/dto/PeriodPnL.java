@@ -0,0 +1,23 @@
+package com.tradepro.dto;
+
+/**
+ * Realized P/L of the exits in one calendar month.
+ */
+public class PeriodPnL {
+    private int year;
+    private int month;
+    private double totalPnL;
+    private long exitCount;
+
+    public int getYear() { return year; }
+    public void setYear(int year) { this.year = year; }
+
+    public int getMonth() { return month; }
+    public void setMonth(int month) { this.month = month; }
+
+    public double getTotalPnL() { return totalPnL; }
+    public void setTotalPnL(double totalPnL) { this.totalPnL = totalPnL; }
+
+    public long getExitCount() { return exitCount; }
+    public void setExitCount(long exitCount) { this.exitCount = exitCount; }
+}
@@ -0,0 +1,33 @@
+package com.tradepro.dto;
+
+/**
+ * One row of the per-strategy P/L aggregation over closed trades.
+ */
+public class StrategyPnL {
+    private String strategy;
+    private double totalPnL;
+    private long tradeCount;
+    private long winningTrades;
+    private long profitCount;
+
+    public StrategyPnL() {}
+
+    public StrategyPnL(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public String getStrategy() { return strategy; }
+    public void setStrategy(String strategy) { this.strategy = strategy; }
+
+    public double getTotalPnL() { return totalPnL; }
+    public void setTotalPnL(double totalPnL) { this.totalPnL = totalPnL; }
+
+    public long getTradeCount() { return tradeCount; }
+    public void setTradeCount(long tradeCount) { this.tradeCount = tradeCount; }
+
+    public long getWinningTrades() { return winningTrades; }
+    public void setWinningTrades(long winningTrades) { this.winningTrades = winningTrades; }
+
+    public long getProfitCount() { return profitCount; }
+    public void setProfitCount(long profitCount) { this.profitCount = profitCount; }
+}
@@ -0,0 +1,25 @@
+package com.tradepro.dto;
+
+import com.tradepro.model.Trade;
+
+import java.util.List;
+
+/**
+ * One page of a user's trades in (entryDate, id) order. nextCursor is passed back to fetch
+ * the following page and is null on the last page.
+ */
+public class TradePage {
+    private List<Trade> items;
+    private String nextCursor;
+
+    public TradePage(List<Trade> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Trade> getItems() { return items; }
+    public void setItems(List<Trade> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
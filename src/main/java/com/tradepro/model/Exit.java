@@ -1,11 +1,14 @@
 package com.tradepro.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Exit {
     private String exitDate;
     private double exitPrice;
     private int exitQuantity;
     private double profit;
-    private double profitPercentage;
+    private Double profitPercentage;  // null when the entry price is 0
+    private Integer exitDay;  // exitDate as an epoch day, written alongside it
 
     // Constructors
     public Exit() {}
@@ -27,6 +30,14 @@ public class Exit {
     public void setExitQuantity(int exitQuantity) { this.exitQuantity = exitQuantity; }
     public double getProfit() { return profit; }
     public void setProfit(double profit) { this.profit = profit; }
-    public double getProfitPercentage() { return profitPercentage; }
-    public void setProfitPercentage(double profitPercentage) { this.profitPercentage = profitPercentage; }
+    public Double getProfitPercentage() { return profitPercentage; }
+    public void setProfitPercentage(Double profitPercentage) { this.profitPercentage = profitPercentage; }
+
+    /**
+     * Exit date as an epoch day; parsed from exitDate for exits that were not migrated yet.
+     */
+    @JsonIgnore
+    public Integer getExitDay() { return exitDay != null ? exitDay : TradeDates.toEpochDay(exitDate); }
+
+    void refreshExitDay() { this.exitDay = TradeDates.toEpochDay(exitDate); }
 }
@@ -0,0 +1,79 @@
+package com.tradepro.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * State and progress of an asynchronous broker export import. The node running the job keeps
+ * heartbeatAt current; a job that is not finished and whose heartbeat stopped was lost with its
+ * node. Finished jobs are removed once expiresAt has passed.
+ */
+@Document(collection = "import_jobs")
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, PARSING, MATCHING, SAVING, COMPLETED, FAILED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED;
+        }
+    }
+
+    @Id
+    private String id;
+    private String userId;
+    private String fileName;
+    private Status status = Status.QUEUED;
+    private long rowsParsed;
+    private long tradesMatched;
+    private long tradesSaved;
+    private long tradesFailed;
+    // The first trades.import.jobs.max-errors error messages
+    private List<String> errors = new ArrayList<>();
+    private Date createdAt;
+    private Date heartbeatAt;
+    private Date finishedAt;
+    private Date expiresAt;
+
+    public ImportJob() {}
+
+    public ImportJob(String id, String userId, String fileName) {
+        this.id = id;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.createdAt = new Date();
+        this.heartbeatAt = createdAt;
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public long getRowsParsed() { return rowsParsed; }
+    public void setRowsParsed(long rowsParsed) { this.rowsParsed = rowsParsed; }
+    public long getTradesMatched() { return tradesMatched; }
+    public void setTradesMatched(long tradesMatched) { this.tradesMatched = tradesMatched; }
+    public long getTradesSaved() { return tradesSaved; }
+    public void setTradesSaved(long tradesSaved) { this.tradesSaved = tradesSaved; }
+    public long getTradesFailed() { return tradesFailed; }
+    public void setTradesFailed(long tradesFailed) { this.tradesFailed = tradesFailed; }
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public Date getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(Date heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+    public Date getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Date finishedAt) { this.finishedAt = finishedAt; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,56 @@
+package com.tradepro.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Realized P/L of one user over one day, week or month, keyed by the date the bucket starts.
+ * The id is "userId|granularity|yyyy-MM-dd", so a date range of one user's series is a
+ * range scan over the _id index.
+ */
+@Document(collection = "pnl_series")
+public class PnLBucket {
+    public static final String DAY = "DAY";
+    public static final String WEEK = "WEEK";
+    public static final String MONTH = "MONTH";
+
+    @Id
+    private String id;
+    private String userId;
+    private String granularity;
+    private String bucket;
+    private double pnl;
+    private int tradeCount;
+
+    public PnLBucket() {}
+
+    public PnLBucket(String userId, String granularity, String bucket) {
+        this.id = idOf(userId, granularity, bucket);
+        this.userId = userId;
+        this.granularity = granularity;
+        this.bucket = bucket;
+    }
+
+    public static String idOf(String userId, String granularity, String bucket) {
+        return idPrefixOf(userId) + granularity + "|" + bucket;
+    }
+
+    // Start of the ids of all of one user's buckets
+    public static String idPrefixOf(String userId) {
+        return userId + "|";
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+    public double getPnl() { return pnl; }
+    public void setPnl(double pnl) { this.pnl = pnl; }
+    public int getTradeCount() { return tradeCount; }
+    public void setTradeCount(int tradeCount) { this.tradeCount = tradeCount; }
+}
@@ -1,12 +1,22 @@
 package com.tradepro.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.List;
 import java.util.ArrayList;
 
 @Document(collection = "trades")
-public class Trade {
+@JsonFilter(Trade.JSON_FILTER)
+public class Trade implements TradeOutcome {
+    // Jackson filter that limits a response to the fields a client asked for; all fields by default
+    public static final String JSON_FILTER = "tradeFields";
+
+    // Version of the typed date fields; documents below it are rewritten by TradeDateMigrationService
+    public static final int TYPED_DATES_VERSION = 1;
+
     @Id
     private String id;
     private String userId;
@@ -29,6 +39,47 @@ public class Trade {
     private Double strikePrice;
     private String expirationDate;
 
+    // Epoch-day copies of the date strings above, kept in step on every save
+    private Integer entryDay;
+    private Integer exitDay;
+    private Integer expirationDay;
+    private Integer typedDatesVersion;
+
+    // Optimistic lock; trades stored before it existed have none until their next write
+    @Version
+    private Long version;
+
+    public Trade() {}
+
+    // Copy constructor, used to keep the stored state of a trade before it is modified
+    public Trade(Trade other) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.entryDate = other.entryDate;
+        this.exitDate = other.exitDate;
+        this.symbol = other.symbol;
+        this.action = other.action;
+        this.quantity = other.quantity;
+        this.price = other.price;
+        this.type = other.type;
+        this.optionType = other.optionType;
+        this.strategy = other.strategy;
+        this.notes = other.notes;
+        this.exits = other.exits != null ? new ArrayList<>(other.exits) : null;
+        this.status = other.status;
+        this.totalProfit = other.totalProfit;
+        this.totalProfitPercentage = other.totalProfitPercentage;
+        this.remainingQuantity = other.remainingQuantity;
+        this.fullSymbol = other.fullSymbol;
+        this.strikePrice = other.strikePrice;
+        this.expirationDate = other.expirationDate;
+        this.entryDay = other.entryDay;
+        this.exitDay = other.exitDay;
+        this.expirationDay = other.expirationDay;
+        this.typedDatesVersion = other.typedDatesVersion;
+        this.version = other.version;
+    }
+
     // Getters and setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -71,6 +122,36 @@ public class Trade {
     public String getExpirationDate() { return expirationDate; }
     public void setExpirationDate(String expirationDate) { this.expirationDate = expirationDate; }
 
+    // The typed dates fall back to parsing the strings until the document has been migrated
+    @JsonIgnore
+    public Integer getEntryDay() { return entryDay != null ? entryDay : TradeDates.toEpochDay(entryDate); }
+
+    @JsonIgnore
+    public Integer getExitDay() { return exitDay != null ? exitDay : TradeDates.toEpochDay(exitDate); }
+
+    @JsonIgnore
+    public Integer getExpirationDay() { return expirationDay != null ? expirationDay : TradeDates.toEpochDay(expirationDate); }
+
+    @JsonIgnore
+    public Integer getTypedDatesVersion() { return typedDatesVersion; }
+
+    @JsonIgnore
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    /**
+     * Recomputes the typed dates of the trade and its exits from the date strings.
+     */
+    public void refreshTypedDates() {
+        this.entryDay = TradeDates.toEpochDay(entryDate);
+        this.exitDay = TradeDates.toEpochDay(exitDate);
+        this.expirationDay = TradeDates.toEpochDay(expirationDate);
+        if (exits != null) {
+            exits.forEach(Exit::refreshExitDay);
+        }
+        this.typedDatesVersion = TYPED_DATES_VERSION;
+    }
+
     // Add this method to Trade.java
     public void addToQuantity(int additionalQuantity) {
         this.quantity += additionalQuantity;
@@ -0,0 +1,255 @@
+package com.tradepro.model;
+
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.dto.StrategyPnL;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Up to trades.archive.max-trades-per-bucket archived trades of one user whose last exit falls
+ * in the same month, together with a {@link Summary} of everything the analytics derive from
+ * them. Analytics read the summaries only, so a user's archived history costs one small
+ * document per month instead of one trade document per trade.
+ */
+@Document(collection = "trades_archive")
+public class TradeArchiveBucket {
+    @Id
+    private String id;
+    private String userId;
+    // yyyy-MM of the last exit of every trade in the bucket
+    private String month;
+    private int count;
+    private List<String> tradeIds = new ArrayList<>();
+    private List<Trade> trades = new ArrayList<>();
+    private Summary summary = new Summary();
+    private Date updatedAt;
+    @Version
+    private Long version;
+
+    public TradeArchiveBucket() {}
+
+    public TradeArchiveBucket(String userId, String month) {
+        this.userId = userId;
+        this.month = month;
+    }
+
+    public static String monthOf(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString().substring(0, 7);
+    }
+
+    /**
+     * Recomputes the count, the trade ids and the summary from the trades.
+     */
+    public void summarize() {
+        count = trades.size();
+        tradeIds = new ArrayList<>(count);
+        summary = new Summary();
+        for (Trade trade : trades) {
+            tradeIds.add(trade.getId());
+            summary.add(trade);
+        }
+        updatedAt = new Date();
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getMonth() { return month; }
+    public void setMonth(String month) { this.month = month; }
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+    public List<String> getTradeIds() { return tradeIds; }
+    public void setTradeIds(List<String> tradeIds) { this.tradeIds = tradeIds; }
+    public List<Trade> getTrades() { return trades; }
+    public void setTrades(List<Trade> trades) { this.trades = trades; }
+    public Summary getSummary() { return summary; }
+    public void setSummary(Summary summary) { this.summary = summary; }
+    public Date getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    /**
+     * Pre-aggregated contribution of the bucket's trades, counted the way {@code UserAnalyticsService},
+     * {@code PnLSeriesService}, the monthly exit P/L aggregation and the duration metrics count a
+     * closed trade.
+     */
+    public static class Summary {
+        private long tradeCount;
+        private long profitCount;
+        private long winningTrades;
+        private double profitSum;
+        private double grossProfits;
+        private double grossLosses;
+        private double biggestWin;
+        private double biggestLoss;
+        private List<StrategyPnL> strategies = new ArrayList<>();
+        // P/L of every exit by the month of the exit, and by the year of its exit day
+        private List<PeriodPnL> exitMonths = new ArrayList<>();
+        private List<UserAnalytics.YearBucket> exitYears = new ArrayList<>();
+        // Total profit of the trades by the day of their last exit
+        private List<DayPnL> days = new ArrayList<>();
+        // Closed trades with an entry and an exit day, and the days they were held
+        private long durationCount;
+        private long durationDays;
+
+        public void add(TradeOutcome trade) {
+            tradeCount++;
+            StrategyPnL strategy = strategy(trade.getStrategy());
+            if (strategy != null) {
+                strategy.setTradeCount(strategy.getTradeCount() + 1);
+            }
+
+            List<Exit> exits = trade.getExits() != null ? trade.getExits() : List.of();
+            Integer lastExitDay = exits.isEmpty() ? null : exits.get(exits.size() - 1).getExitDay();
+            if (trade.getEntryDay() != null && lastExitDay != null) {
+                durationCount++;
+                durationDays += lastExitDay - trade.getEntryDay();
+            }
+
+            Double totalProfit = trade.getTotalProfit();
+            if (totalProfit == null) {
+                return;
+            }
+            double profit = totalProfit;
+            profitCount++;
+            profitSum += profit;
+            if (profit > 0) {
+                winningTrades++;
+                grossProfits += profit;
+                biggestWin = Math.max(biggestWin, profit);
+            } else if (profit < 0) {
+                grossLosses -= profit;
+                biggestLoss = Math.min(biggestLoss, profit);
+            }
+            if (strategy != null) {
+                strategy.setProfitCount(strategy.getProfitCount() + 1);
+                strategy.setTotalPnL(strategy.getTotalPnL() + profit);
+                if (profit > 0) {
+                    strategy.setWinningTrades(strategy.getWinningTrades() + 1);
+                }
+            }
+
+            for (Exit exit : exits) {
+                addExit(exit);
+            }
+            if (lastExitDay != null) {
+                int day = lastExitDay;
+                DayPnL bucket = days.stream().filter(d -> d.getDay() == day).findFirst().orElse(null);
+                if (bucket == null) {
+                    bucket = new DayPnL(day);
+                    days.add(bucket);
+                }
+                bucket.setPnl(bucket.getPnl() + profit);
+                bucket.setTradeCount(bucket.getTradeCount() + 1);
+            }
+        }
+
+        // Same year and month as the monthly exit P/L aggregation; exits with an unreadable date count in neither
+        private void addExit(Exit exit) {
+            Integer exitDay = exit.getExitDay();
+            if (exitDay == null) {
+                return;
+            }
+            LocalDate day = LocalDate.ofEpochDay(exitDay);
+            int year = day.getYear();
+            int month = day.getMonthValue();
+            UserAnalytics.YearBucket yearBucket = exitYears.stream()
+                .filter(bucket -> bucket.getYear() == year).findFirst().orElse(null);
+            if (yearBucket == null) {
+                yearBucket = new UserAnalytics.YearBucket(year);
+                exitYears.add(yearBucket);
+            }
+            yearBucket.setTotalPnL(yearBucket.getTotalPnL() + exit.getProfit());
+
+            PeriodPnL period = null;
+            for (PeriodPnL candidate : exitMonths) {
+                if (candidate.getYear() == year && candidate.getMonth() == month) {
+                    period = candidate;
+                    break;
+                }
+            }
+            if (period == null) {
+                period = new PeriodPnL();
+                period.setYear(year);
+                period.setMonth(month);
+                exitMonths.add(period);
+            }
+            period.setTotalPnL(period.getTotalPnL() + exit.getProfit());
+            period.setExitCount(period.getExitCount() + 1);
+        }
+
+        private StrategyPnL strategy(String name) {
+            if (name == null || name.isEmpty()) {
+                return null;
+            }
+            for (StrategyPnL bucket : strategies) {
+                if (bucket.getStrategy().equals(name)) {
+                    return bucket;
+                }
+            }
+            StrategyPnL bucket = new StrategyPnL(name);
+            strategies.add(bucket);
+            return bucket;
+        }
+
+        public long getTradeCount() { return tradeCount; }
+        public void setTradeCount(long tradeCount) { this.tradeCount = tradeCount; }
+        public long getProfitCount() { return profitCount; }
+        public void setProfitCount(long profitCount) { this.profitCount = profitCount; }
+        public long getWinningTrades() { return winningTrades; }
+        public void setWinningTrades(long winningTrades) { this.winningTrades = winningTrades; }
+        public double getProfitSum() { return profitSum; }
+        public void setProfitSum(double profitSum) { this.profitSum = profitSum; }
+        public double getGrossProfits() { return grossProfits; }
+        public void setGrossProfits(double grossProfits) { this.grossProfits = grossProfits; }
+        public double getGrossLosses() { return grossLosses; }
+        public void setGrossLosses(double grossLosses) { this.grossLosses = grossLosses; }
+        public double getBiggestWin() { return biggestWin; }
+        public void setBiggestWin(double biggestWin) { this.biggestWin = biggestWin; }
+        public double getBiggestLoss() { return biggestLoss; }
+        public void setBiggestLoss(double biggestLoss) { this.biggestLoss = biggestLoss; }
+        public List<StrategyPnL> getStrategies() { return strategies; }
+        public void setStrategies(List<StrategyPnL> strategies) { this.strategies = strategies; }
+        public List<PeriodPnL> getExitMonths() { return exitMonths; }
+        public void setExitMonths(List<PeriodPnL> exitMonths) { this.exitMonths = exitMonths; }
+        public List<UserAnalytics.YearBucket> getExitYears() { return exitYears; }
+        public void setExitYears(List<UserAnalytics.YearBucket> exitYears) { this.exitYears = exitYears; }
+        public List<DayPnL> getDays() { return days; }
+        public void setDays(List<DayPnL> days) { this.days = days; }
+        public long getDurationCount() { return durationCount; }
+        public void setDurationCount(long durationCount) { this.durationCount = durationCount; }
+        public long getDurationDays() { return durationDays; }
+        public void setDurationDays(long durationDays) { this.durationDays = durationDays; }
+    }
+
+    /**
+     * Total profit of the archived trades whose last exit was on one day, as an epoch day.
+     */
+    public static class DayPnL {
+        private int day;
+        private double pnl;
+        private int tradeCount;
+
+        public DayPnL() {}
+
+        public DayPnL(int day) {
+            this.day = day;
+        }
+
+        public int getDay() { return day; }
+        public void setDay(int day) { this.day = day; }
+        public double getPnl() { return pnl; }
+        public void setPnl(double pnl) { this.pnl = pnl; }
+        public int getTradeCount() { return tradeCount; }
+        public void setTradeCount(int tradeCount) { this.tradeCount = tradeCount; }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tradepro.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses the date strings stored on trades and exits into epoch days. Stored dates come in
+ * several shapes ("2024-01-15", "2024-01-15T00:00:00.000Z", "2024-01-15T09:30" and, from
+ * older clients, "1/15/2024"); only the calendar date is kept.
+ */
+public final class TradeDates {
+
+    private static final DateTimeFormatter US_DATE = DateTimeFormatter.ofPattern("M/d/yyyy");
+
+    private TradeDates() {}
+
+    /**
+     * Epoch day of a stored date string, or null if it is missing or cannot be parsed.
+     */
+    public static Integer toEpochDay(String date) {
+        if (date == null || date.isBlank()) {
+            return null;
+        }
+        String value = date.trim();
+        int timeStart = value.indexOf('T');
+        if (timeStart > 0) {
+            value = value.substring(0, timeStart);
+        }
+        try {
+            return (int) LocalDate.parse(value).toEpochDay();
+        } catch (Exception e) {
+            try {
+                return (int) LocalDate.parse(value, US_DATE).toEpochDay();
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.tradepro.model;
+
+import java.util.List;
+
+/**
+ * The part of a {@link Trade} the analytics are derived from. Trades loaded for analytics only
+ * fetch these fields (and only the dates and profit of each exit), so other getters of such a
+ * trade would return defaults; code that works on this view cannot reach them.
+ */
+public interface TradeOutcome {
+
+    /**
+     * Fields to project when loading trades for analytics.
+     */
+    List<String> FIELDS = List.of(
+        "id", "userId", "status", "totalProfit", "strategy", "symbol", "entryDate", "entryDay", "quantity",
+        "exits.exitDate", "exits.exitDay", "exits.profit");
+
+    String getId();
+
+    String getUserId();
+
+    String getStatus();
+
+    Double getTotalProfit();
+
+    String getStrategy();
+
+    String getSymbol();
+
+    String getEntryDate();
+
+    /**
+     * Entry date as an epoch day, null if the trade has no parseable entry date.
+     */
+    Integer getEntryDay();
+
+    int getQuantity();
+
+    /**
+     * Exits in the order they were made, with only exitDate, exitDay and profit guaranteed to be loaded.
+     */
+    List<Exit> getExits();
+}
@@ -0,0 +1,156 @@
+package com.tradepro.model;
+
+import com.tradepro.dto.StrategyPnL;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Per-user analytics snapshot, kept up to date on every trade write so the dashboard
+ * endpoints can answer without reloading the user's trades.
+ * When an incremental update cannot be applied exactly (e.g. the current biggest win is
+ * edited away) the snapshot is flagged stale and rebuilt from the trades on the next read.
+ */
+@Document(collection = "user_analytics")
+public class UserAnalytics {
+    // Snapshots stored in an older layout are rebuilt on read
+    public static final int FORMAT = 1;
+
+    @Id
+    private String userId;
+    @Version
+    private Long version;
+
+    // Trade counts and realized P/L over closed and partially closed trades
+    private long totalTrades;
+    private long openTrades;
+    private long closedTrades;
+    private long winningTrades;
+    private long profitCount;
+    private double profitSum;
+    private double grossProfits;
+    private double grossLosses;
+    private double biggestWin;
+    private double biggestLoss;
+
+    // Running equity over closed trades, summed per epoch day of their last exit
+    private double equity;
+    private double peakEquity;
+    private double maxDrawdown;
+    private Integer lastExitDay;
+    // The same before lastExitDay, and the P/L of lastExitDay, so that day can still be changed exactly
+    private double settledEquity;
+    private double settledPeakEquity;
+    private double settledMaxDrawdown;
+    private double lastDayPnL;
+
+    private List<StrategyPnL> strategies = new ArrayList<>();
+    private List<YearBucket> years = new ArrayList<>();
+
+    private int format;
+    private boolean stale;
+    private Date updatedAt;
+    // When the last rebuild had read the trades; it may include writes started before then
+    private Date rebuiltAt;
+
+    public UserAnalytics() {}
+
+    public UserAnalytics(String userId) {
+        this.userId = userId;
+    }
+
+    public StrategyPnL getStrategy(String strategy) {
+        for (StrategyPnL bucket : strategies) {
+            if (bucket.getStrategy().equals(strategy)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    public YearBucket getYear(int year) {
+        for (YearBucket bucket : years) {
+            if (bucket.getYear() == year) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    // Getters and setters
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    public long getTotalTrades() { return totalTrades; }
+    public void setTotalTrades(long totalTrades) { this.totalTrades = totalTrades; }
+    public long getOpenTrades() { return openTrades; }
+    public void setOpenTrades(long openTrades) { this.openTrades = openTrades; }
+    public long getClosedTrades() { return closedTrades; }
+    public void setClosedTrades(long closedTrades) { this.closedTrades = closedTrades; }
+    public long getWinningTrades() { return winningTrades; }
+    public void setWinningTrades(long winningTrades) { this.winningTrades = winningTrades; }
+    public long getProfitCount() { return profitCount; }
+    public void setProfitCount(long profitCount) { this.profitCount = profitCount; }
+    public double getProfitSum() { return profitSum; }
+    public void setProfitSum(double profitSum) { this.profitSum = profitSum; }
+    public double getGrossProfits() { return grossProfits; }
+    public void setGrossProfits(double grossProfits) { this.grossProfits = grossProfits; }
+    public double getGrossLosses() { return grossLosses; }
+    public void setGrossLosses(double grossLosses) { this.grossLosses = grossLosses; }
+    public double getBiggestWin() { return biggestWin; }
+    public void setBiggestWin(double biggestWin) { this.biggestWin = biggestWin; }
+    public double getBiggestLoss() { return biggestLoss; }
+    public void setBiggestLoss(double biggestLoss) { this.biggestLoss = biggestLoss; }
+    public double getEquity() { return equity; }
+    public void setEquity(double equity) { this.equity = equity; }
+    public double getPeakEquity() { return peakEquity; }
+    public void setPeakEquity(double peakEquity) { this.peakEquity = peakEquity; }
+    public double getMaxDrawdown() { return maxDrawdown; }
+    public void setMaxDrawdown(double maxDrawdown) { this.maxDrawdown = maxDrawdown; }
+    public Integer getLastExitDay() { return lastExitDay; }
+    public void setLastExitDay(Integer lastExitDay) { this.lastExitDay = lastExitDay; }
+    public List<StrategyPnL> getStrategies() { return strategies; }
+    public void setStrategies(List<StrategyPnL> strategies) { this.strategies = strategies; }
+    public List<YearBucket> getYears() { return years; }
+    public void setYears(List<YearBucket> years) { this.years = years; }
+    public double getSettledEquity() { return settledEquity; }
+    public void setSettledEquity(double settledEquity) { this.settledEquity = settledEquity; }
+    public double getSettledPeakEquity() { return settledPeakEquity; }
+    public void setSettledPeakEquity(double settledPeakEquity) { this.settledPeakEquity = settledPeakEquity; }
+    public double getSettledMaxDrawdown() { return settledMaxDrawdown; }
+    public void setSettledMaxDrawdown(double settledMaxDrawdown) { this.settledMaxDrawdown = settledMaxDrawdown; }
+    public double getLastDayPnL() { return lastDayPnL; }
+    public void setLastDayPnL(double lastDayPnL) { this.lastDayPnL = lastDayPnL; }
+    public int getFormat() { return format; }
+    public void setFormat(int format) { this.format = format; }
+    public boolean isStale() { return stale; }
+    public void setStale(boolean stale) { this.stale = stale; }
+    public Date getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+    public Date getRebuiltAt() { return rebuiltAt; }
+    public void setRebuiltAt(Date rebuiltAt) { this.rebuiltAt = rebuiltAt; }
+
+    /**
+     * Realized P/L of all exits that happened in one calendar year.
+     */
+    public static class YearBucket {
+        private int year;
+        private double totalPnL;
+
+        public YearBucket() {}
+
+        public YearBucket(int year) {
+            this.year = year;
+        }
+
+        public int getYear() { return year; }
+        public void setYear(int year) { this.year = year; }
+        public double getTotalPnL() { return totalPnL; }
+        public void setTotalPnL(double totalPnL) { this.totalPnL = totalPnL; }
+    }
+}
@@ -0,0 +1,28 @@
+package com.tradepro.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Per-user counter bumped on every write to the user's trades. Derived results computed
+ * at one version stay valid until the counter moves on.
+ */
+@Document(collection = "user_data_versions")
+public class UserDataVersion {
+    @Id
+    private String userId;
+    private long version;
+    private Date updatedAt;
+
+    // Getters and setters
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public Date getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+}
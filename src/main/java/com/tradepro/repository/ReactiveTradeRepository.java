@@ -0,0 +1,13 @@
+package com.tradepro.repository;
+
+import com.tradepro.model.Trade;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Non-blocking access to the trades collection for read-heavy analytics. Writes keep going
+ * through {@link TradeRepository}, so that the write listeners see every change.
+ */
+@Repository
+public interface ReactiveTradeRepository extends ReactiveMongoRepository<Trade, String>, ReactiveTradeRepositoryCustom {
+}
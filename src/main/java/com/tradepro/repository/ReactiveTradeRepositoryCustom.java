@@ -0,0 +1,23 @@
+package com.tradepro.repository;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.model.TradeOutcome;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive variants of the {@link TradeRepositoryCustom} queries used by analytics.
+ */
+public interface ReactiveTradeRepositoryCustom {
+
+    /**
+     * Emits the user's trades with only the {@link TradeOutcome} fields loaded, as they arrive.
+     * @param readPreference Members the query may run on
+     */
+    Flux<TradeOutcome> findOutcomesByUserId(String userId, ReadPreference readPreference);
+
+    /**
+     * See {@link TradeRepositoryCustom#aggregateMonthlyExitPnL}.
+     */
+    Flux<PeriodPnL> aggregateMonthlyExitPnL(String userId, ReadPreference readPreference);
+}
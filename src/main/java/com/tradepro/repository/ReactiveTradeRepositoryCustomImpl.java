@@ -0,0 +1,29 @@
+package com.tradepro.repository;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeOutcome;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+public class ReactiveTradeRepositoryCustomImpl implements ReactiveTradeRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<TradeOutcome> findOutcomesByUserId(String userId, ReadPreference readPreference) {
+        return reactiveMongoTemplate.find(TradeRepositoryCustomImpl.outcomesQuery(userId, readPreference), Trade.class)
+            .cast(TradeOutcome.class);
+    }
+
+    @Override
+    public Flux<PeriodPnL> aggregateMonthlyExitPnL(String userId, ReadPreference readPreference) {
+        // Untyped for the same reason as the blocking variant
+        return reactiveMongoTemplate.aggregate(
+            TradeRepositoryCustomImpl.monthlyExitPnLAggregation(userId, readPreference),
+            reactiveMongoTemplate.getCollectionName(Trade.class), PeriodPnL.class);
+    }
+}
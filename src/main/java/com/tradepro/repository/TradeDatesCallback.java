@@ -0,0 +1,19 @@
+package com.tradepro.repository;
+
+import com.tradepro.model.Trade;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the typed date fields of every trade saved or inserted through MongoTemplate,
+ * so they never fall behind the date strings they are derived from.
+ */
+@Component
+public class TradeDatesCallback implements BeforeConvertCallback<Trade> {
+
+    @Override
+    public Trade onBeforeConvert(Trade trade, String collection) {
+        trade.refreshTypedDates();
+        return trade;
+    }
+}
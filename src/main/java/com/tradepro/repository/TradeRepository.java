@@ -5,6 +5,6 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 
-public interface TradeRepository extends MongoRepository<Trade, String> {
+public interface TradeRepository extends MongoRepository<Trade, String>, TradeRepositoryCustom {
     List<Trade> findByUserId(String userId);
 }
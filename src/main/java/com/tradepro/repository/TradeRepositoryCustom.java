@@ -0,0 +1,84 @@
+package com.tradepro.repository;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.dto.StrategyPnL;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeOutcome;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Queries on the trades collection that are run through MongoTemplate instead of derived queries.
+ */
+public interface TradeRepositoryCustom {
+
+    /**
+     * Aggregates closed and partially closed trades by strategy inside MongoDB.
+     * Strategies none of whose trades has a realized P/L yet are included with a profitCount of 0.
+     * Rows are sorted by total P/L, highest first.
+     */
+    List<StrategyPnL> aggregateStrategyPnL(String userId);
+
+    /**
+     * Sums the profit of every exit of the user's closed and partially closed trades by the
+     * year and month of the exit date, in one pass inside MongoDB.
+     * Rows are sorted chronologically.
+     * @param readPreference Members the aggregation may run on
+     */
+    List<PeriodPnL> aggregateMonthlyExitPnL(String userId, ReadPreference readPreference);
+
+    /**
+     * Returns up to limit of the user's trades in (entryDate, _id) order, starting after the
+     * given key. Uses the userId_entryDate_id index, so every page costs the same.
+     * @param afterEntryDate entryDate of the last trade of the previous page, may be null
+     * @param afterId _id of the last trade of the previous page, null for the first page
+     * @param fields Trade fields to load, null for all of them
+     * @param from First entry date to include, null for no lower bound
+     * @param to Last entry date to include, null for no upper bound
+     */
+    List<Trade> findPageByUserId(String userId, String afterEntryDate, String afterId, int limit,
+                                 Collection<String> fields, LocalDate from, LocalDate to);
+
+    /**
+     * Streams the user's trades in (entryDate, _id) order from a server-side cursor.
+     * The caller must close the stream.
+     * @param fields Trade fields to load, null for all of them
+     */
+    Stream<Trade> streamByUserId(String userId, Collection<String> fields, LocalDate from, LocalDate to);
+
+    /**
+     * Returns the user's trades entered within [from, to] with only the given fields loaded.
+     * Null fields load everything and null bounds leave the range open.
+     */
+    List<Trade> findByUserId(String userId, Collection<String> fields, LocalDate from, LocalDate to);
+
+    /**
+     * Returns all of the user's trades with only the {@link TradeOutcome} fields loaded.
+     */
+    List<TradeOutcome> findOutcomesByUserId(String userId);
+
+    /**
+     * As {@link #findOutcomesByUserId(String)}, read from the given members.
+     */
+    List<TradeOutcome> findOutcomesByUserId(String userId, ReadPreference readPreference);
+
+    /**
+     * Appends an exit to the trade and recomputes its totals, remaining quantity and status in
+     * one atomic findAndModify. The exit's profit is computed from the stored entry price.
+     * The update only applies while the exit quantity is positive and does not exceed the quantity
+     * left open, so concurrent exits can neither be lost nor close more than the trade holds.
+     * @return The trade as stored before the exit, or null if there is no trade with the id
+     *         or exitQuantity is not positive or more than it has left open
+     */
+    Trade pushExit(String tradeId, String exitDate, double exitPrice, int exitQuantity);
+
+    /**
+     * Gives a trade stored before trades were versioned the initial version 0, so that it can be
+     * saved with an optimistic lock. Trades that already have a version are left unchanged.
+     */
+    void initializeVersion(String tradeId);
+}
@@ -0,0 +1,288 @@
+package com.tradepro.repository;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.dto.StrategyPnL;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeDates;
+import com.tradepro.model.TradeOutcome;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TradeRepositoryCustomImpl implements TradeRepositoryCustom {
+
+    private static final List<String> CLOSED_STATUSES = List.of("CLOSED", "PARTIALLY_CLOSED");
+    private static final Sort LISTING_ORDER = Sort.by(Sort.Direction.ASC, "entryDate", "_id");
+
+    // 1 when totalProfit is positive; null and missing sort below numbers so they count as 0
+    private static final AggregationExpression IS_WINNER = context ->
+        new Document("$cond", Arrays.asList(
+            new Document("$gt", Arrays.asList("$totalProfit", 0)), 1, 0));
+
+    // 1 when totalProfit is set; $ifNull folds a missing field into null
+    private static final AggregationExpression HAS_PROFIT = context ->
+        new Document("$cond", Arrays.asList(
+            new Document("$eq", Arrays.asList(new Document("$ifNull", Arrays.asList("$totalProfit", null)), null)), 0, 1));
+
+    // The exit day as a date; exits not migrated to typed dates yet have no exitDay
+    private static final Document EXIT_DAY_AS_DATE =
+        new Document("$toDate", new Document("$multiply", Arrays.asList("$exits.exitDay", 86_400_000L)));
+
+    private static final Document HAS_EXIT_DAY =
+        new Document("$ne", Arrays.asList(new Document("$type", "$exits.exitDay"), "missing"));
+
+    // The exitDate string of an exit not migrated yet as a date, null if it is neither ISO nor M/d/yyyy
+    private static final Document EXIT_DATE_AS_DATE = legacyDateAsDate("$exits.exitDate");
+
+    // The entryDate string of a trade not migrated yet as a date, null if it is neither ISO nor M/d/yyyy
+    private static final Document ENTRY_DATE_AS_DATE = legacyDateAsDate("$entryDate");
+
+    private static final Document EXIT_DATE = new Document("$cond", Arrays.asList(HAS_EXIT_DAY, EXIT_DAY_AS_DATE, EXIT_DATE_AS_DATE));
+
+    // Year and month of each exit as integers, from exitDay or else from the parsed exitDate string
+    private static final AggregationOperation PROJECT_EXIT_PERIOD = context ->
+        new Document("$project", new Document("_id", 0)
+            .append("profit", "$exits.profit")
+            .append("year", new Document("$year", EXIT_DATE))
+            .append("month", new Document("$month", EXIT_DATE)));
+
+    // Quantity not closed by an exit yet, derived from the exits rather than the stored remainingQuantity
+    private static final Document OPEN_QUANTITY =
+        new Document("$subtract", Arrays.asList("$quantity", new Document("$sum", "$exits.exitQuantity")));
+
+    private static final Document ENTRY_VALUE = new Document("$multiply", Arrays.asList("$price", "$quantity"));
+
+    // Totals and status as TradeService.updateTradeStatus computes them, applied after the exit is appended
+    private static final AggregationOperation SET_EXIT_TOTALS = context ->
+        new Document("$set", new Document("totalProfit", new Document("$sum", "$exits.profit"))
+            .append("remainingQuantity", OPEN_QUANTITY));
+
+    private static final AggregationOperation SET_EXIT_STATUS = context ->
+        new Document("$set", new Document("totalProfitPercentage", new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(ENTRY_VALUE, 0)),
+                null,
+                new Document("$multiply", Arrays.asList(
+                    new Document("$divide", Arrays.asList("$totalProfit", ENTRY_VALUE)), 100)))))
+            .append("status", new Document("$switch", new Document("branches", Arrays.asList(
+                    new Document("case", new Document("$eq", Arrays.asList("$remainingQuantity", 0))).append("then", "CLOSED"),
+                    new Document("case", new Document("$lt", Arrays.asList("$remainingQuantity", "$quantity"))).append("then", "PARTIALLY_CLOSED")))
+                .append("default", "OPEN")))
+            .append("version", new Document("$add", Arrays.asList(new Document("$ifNull", Arrays.asList("$version", 0)), 1))));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<StrategyPnL> aggregateStrategyPnL(String userId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("userId").is(userId)
+                .and("status").in(CLOSED_STATUSES)
+                .and("strategy").nin(null, "")),
+            Aggregation.group("strategy")
+                .sum("totalProfit").as("totalPnL")
+                .count().as("tradeCount")
+                .sum(IS_WINNER).as("winningTrades")
+                .sum(HAS_PROFIT).as("profitCount"),
+            Aggregation.project("totalPnL", "tradeCount", "winningTrades", "profitCount").and("strategy").previousOperation(),
+            Aggregation.sort(Sort.Direction.DESC, "totalPnL")
+        );
+
+        return mongoTemplate.aggregate(aggregation, Trade.class, StrategyPnL.class).getMappedResults();
+    }
+
+    @Override
+    public List<PeriodPnL> aggregateMonthlyExitPnL(String userId, ReadPreference readPreference) {
+        // Untyped, as the later stages refer to fields introduced by the raw $project
+        return mongoTemplate.aggregate(monthlyExitPnLAggregation(userId, readPreference),
+                mongoTemplate.getCollectionName(Trade.class), PeriodPnL.class)
+            .getMappedResults();
+    }
+
+    @Override
+    public List<Trade> findPageByUserId(String userId, String afterEntryDate, String afterId, int limit,
+                                        Collection<String> fields, LocalDate from, LocalDate to) {
+        Criteria criteria = userTrades(userId, from, to);
+        if (afterId != null) {
+            // Range operators are not mapped to ObjectId like equality is
+            Object afterKey = ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId;
+            Criteria after;
+            if (afterEntryDate == null) {
+                // Null entry dates sort first, so every dated trade comes after them
+                after = new Criteria().orOperator(
+                    Criteria.where("entryDate").is(null).and("_id").gt(afterKey),
+                    Criteria.where("entryDate").ne(null));
+            } else {
+                after = new Criteria().orOperator(
+                    Criteria.where("entryDate").gt(afterEntryDate),
+                    Criteria.where("entryDate").is(afterEntryDate).and("_id").gt(afterKey));
+            }
+            criteria = new Criteria().andOperator(criteria, after);
+        }
+
+        Query query = Query.query(criteria).with(LISTING_ORDER).limit(limit);
+        return mongoTemplate.find(withFields(query, fields), Trade.class);
+    }
+
+    @Override
+    public Stream<Trade> streamByUserId(String userId, Collection<String> fields, LocalDate from, LocalDate to) {
+        Query query = Query.query(userTrades(userId, from, to)).with(LISTING_ORDER);
+        return mongoTemplate.stream(withFields(query, fields), Trade.class);
+    }
+
+    @Override
+    public List<Trade> findByUserId(String userId, Collection<String> fields, LocalDate from, LocalDate to) {
+        Query query = Query.query(userTrades(userId, from, to));
+        return mongoTemplate.find(withFields(query, fields), Trade.class);
+    }
+
+    @Override
+    public List<TradeOutcome> findOutcomesByUserId(String userId) {
+        return findOutcomesByUserId(userId, ReadPreference.primary());
+    }
+
+    @Override
+    public List<TradeOutcome> findOutcomesByUserId(String userId, ReadPreference readPreference) {
+        return new ArrayList<>(mongoTemplate.find(outcomesQuery(userId, readPreference), Trade.class));
+    }
+
+    @Override
+    public Trade pushExit(String tradeId, String exitDate, double exitPrice, int exitQuantity) {
+        // Values from the request are wrapped in $literal, so that a string starting with $ is not read as a field path
+        Document priceMove = new Document("$subtract", Arrays.asList(literal(exitPrice), "$price"));
+        Document exit = new Document("exitDate", literal(exitDate))
+            .append("exitPrice", literal(exitPrice))
+            .append("exitQuantity", literal(exitQuantity))
+            .append("profit", new Document("$multiply", Arrays.asList(priceMove, literal(exitQuantity))))
+            .append("profitPercentage", new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList("$price", 0)),
+                null,
+                new Document("$multiply", Arrays.asList(new Document("$divide", Arrays.asList(priceMove, "$price")), 100)))));
+        Integer exitDay = TradeDates.toEpochDay(exitDate);
+        if (exitDay != null) {
+            exit.append("exitDay", literal(exitDay));
+        }
+
+        AggregationOperation appendExit = context ->
+            new Document("$set", new Document("exits", new Document("$concatArrays", Arrays.asList(
+                new Document("$ifNull", Arrays.asList("$exits", List.of())), List.of(exit)))));
+
+        Query query = Query.query(new Criteria().andOperator(
+            Criteria.where("_id").is(tradeId),
+            Criteria.expr(() -> new Document("$and", Arrays.asList(
+                new Document("$gt", Arrays.asList(literal(exitQuantity), 0)),
+                new Document("$lte", Arrays.asList(literal(exitQuantity), OPEN_QUANTITY)))))));
+        return mongoTemplate.findAndModify(query,
+            AggregationUpdate.from(List.of(appendExit, SET_EXIT_TOTALS, SET_EXIT_STATUS)),
+            FindAndModifyOptions.options().returnNew(false),
+            Trade.class);
+    }
+
+    @Override
+    public void initializeVersion(String tradeId) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(tradeId).and("version").exists(false)),
+            Update.update("version", 0L),
+            Trade.class);
+    }
+
+    // Shared with ReactiveTradeRepositoryCustomImpl, which runs the same queries on the reactive driver
+    static Aggregation monthlyExitPnLAggregation(String userId, ReadPreference readPreference) {
+        return Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("userId").is(userId)
+                .and("status").in(CLOSED_STATUSES)
+                .and("totalProfit").ne(null)),
+            Aggregation.unwind("exits"),
+            PROJECT_EXIT_PERIOD,
+            Aggregation.match(Criteria.where("year").ne(null).and("month").gte(1).lte(12)),
+            Aggregation.group("year", "month")
+                .sum("profit").as("totalPnL")
+                .count().as("exitCount"),
+            Aggregation.project("totalPnL", "exitCount")
+                .and("_id.year").as("year")
+                .and("_id.month").as("month")
+                .andExclude("_id"),
+            Aggregation.sort(Sort.Direction.ASC, "year", "month")
+        ).withOptions(AggregationOptions.builder().readPreference(readPreference).build());
+    }
+
+    static Query outcomesQuery(String userId, ReadPreference readPreference) {
+        Query query = Query.query(Criteria.where("userId").is(userId)).withReadPreference(readPreference);
+        return withFields(query, TradeOutcome.FIELDS);
+    }
+
+    /**
+     * The user's trades entered within [from, to], either bound may be null. The range is an
+     * index range on entryDay; trades not migrated to typed dates yet are matched on their
+     * entryDate string parsed as an ISO or M/d/yyyy date, as {@link TradeDates} reads it.
+     */
+    private static Criteria userTrades(String userId, LocalDate from, LocalDate to) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (from == null && to == null) {
+            return criteria;
+        }
+
+        Criteria typed = Criteria.where("entryDay");
+        List<Object> legacyRange = new ArrayList<>();
+        legacyRange.add(new Document("$ne", Arrays.asList(ENTRY_DATE_AS_DATE, null)));
+        if (from != null) {
+            typed.gte((int) from.toEpochDay());
+            legacyRange.add(new Document("$gte", Arrays.asList(ENTRY_DATE_AS_DATE, startOfDay(from))));
+        }
+        if (to != null) {
+            typed.lte((int) to.toEpochDay());
+            legacyRange.add(new Document("$lt", Arrays.asList(ENTRY_DATE_AS_DATE, startOfDay(to.plusDays(1)))));
+        }
+        Criteria legacy = new Criteria().andOperator(
+            Criteria.where("entryDay").exists(false),
+            Criteria.expr(() -> new Document("$and", legacyRange)));
+        return criteria.orOperator(typed, legacy);
+    }
+
+    private static Date startOfDay(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    // A date string as a date: ISO unless it contains a slash, then M/d/yyyy; null if it parses as neither
+    private static Document legacyDateAsDate(String field) {
+        return new Document("$cond", Arrays.asList(
+            new Document("$eq", Arrays.asList(
+                new Document("$indexOfBytes", Arrays.asList(new Document("$ifNull", Arrays.asList(field, "")), "/")), -1)),
+            new Document("$dateFromString", new Document("dateString", field)
+                .append("onError", null).append("onNull", null)),
+            new Document("$dateFromString", new Document("dateString", field)
+                .append("format", "%m/%d/%Y").append("onError", null).append("onNull", null))));
+    }
+
+    private static Document literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    // Restricts the query to the given fields, e.g. to skip notes and exits; null loads everything
+    private static Query withFields(Query query, Collection<String> fields) {
+        if (fields != null) {
+            fields.forEach(field -> query.fields().include(field));
+        }
+        return query;
+    }
+}
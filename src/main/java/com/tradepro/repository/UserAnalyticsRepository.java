@@ -0,0 +1,7 @@
+package com.tradepro.repository;
+
+import com.tradepro.model.UserAnalytics;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface UserAnalyticsRepository extends MongoRepository<UserAnalytics, String> {
+}
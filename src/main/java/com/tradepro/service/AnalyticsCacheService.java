@@ -0,0 +1,100 @@
+package com.tradepro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.tradepro.model.UserDataVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Caches analytics results per user, endpoint and parameters at the user's current data version.
+ * A write bumps the version, so stale entries are never served; entries of users whose trades
+ * changed are dropped when the change stream reports it, the rest age out of the cache.
+ */
+@Service
+public class AnalyticsCacheService {
+
+    @Autowired
+    @Qualifier("analyticsResultCache")
+    private Cache<Key, Object> cache;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    /**
+     * Builds the cache key of a request at the user's current data version. The current date is
+     * part of the parameters, as time frames such as YTD or "today" move with it.
+     */
+    public Key keyFor(String userId, String endpoint, Object... params) {
+        return new Key(userId, endpoint, keyParams(params), dataVersionService.getVersion(userId));
+    }
+
+    /**
+     * Non-blocking variant of {@link #keyFor}.
+     */
+    public Mono<Key> keyForReactive(String userId, String endpoint, Object... params) {
+        List<Object> keyParams = keyParams(params);
+        return dataVersionService.getDataVersionReactive(userId)
+            .map(UserDataVersion::getVersion)
+            .defaultIfEmpty(0L)
+            .map(version -> new Key(userId, endpoint, keyParams, version));
+    }
+
+    /**
+     * Returns the cached result of the key, computing and caching it on a miss.
+     */
+    public Object get(Key key, Supplier<?> loader) {
+        return cache.get(key, k -> loader.get());
+    }
+
+    /**
+     * Non-blocking variant of {@link #get}. Concurrent misses of the same key may each compute
+     * the result; the last one to finish is cached.
+     */
+    public Mono<Object> getReactive(Key key, Supplier<Mono<?>> loader) {
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return loader.get().map(result -> {
+            cache.put(key, result);
+            return result;
+        });
+    }
+
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (event.getKind() != DataChangeEvent.Kind.TRADES) {
+            return;
+        }
+        if (event.getUserId() != null) {
+            cache.asMap().keySet().removeIf(key -> event.getUserId().equals(key.userId()));
+        } else {
+            cache.invalidateAll();
+        }
+    }
+
+    private static List<Object> keyParams(Object... params) {
+        Object[] keyParams = Arrays.copyOf(params, params.length + 1);
+        keyParams[params.length] = LocalDate.now();
+        return Arrays.asList(keyParams);
+    }
+
+    public record Key(String userId, String endpoint, List<Object> params, long version) {
+
+        /**
+         * Strong ETag of the result. Stable across nodes, as it is derived from the stored
+         * data version and the request parameters only.
+         */
+        public String etag() {
+            return "\"" + version + "-" + Integer.toHexString((endpoint + params).hashCode()) + "\"";
+        }
+    }
+}
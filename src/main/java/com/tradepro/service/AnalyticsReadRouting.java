@@ -0,0 +1,63 @@
+package com.tradepro.service;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.model.UserDataVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Chooses where analytics reads of a user's trades go. Results of these reads are cached under
+ * the user's data version, so they must include every write counted in that version. A secondary
+ * is used once the user's last write is older than the staleness bound, as every secondary the
+ * driver may pick has replicated it by then; reads for users who just wrote go to the primary.
+ * Reads whose results are persisted, like snapshot rebuilds, always go to the primary.
+ */
+@Service
+public class AnalyticsReadRouting {
+
+    // The driver estimates staleness from heartbeats, sent every 10 seconds by default
+    private static final Duration HEARTBEAT_ALLOWANCE = Duration.ofSeconds(10);
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    @Qualifier("analyticsReadPreference")
+    private ReadPreference analyticsReadPreference;
+
+    @Value("${analytics.read.max-staleness:PT90S}")
+    private Duration maxStaleness;
+
+    @Value("${analytics.read.secondary-enabled:true}")
+    private boolean secondaryEnabled;
+
+    public ReadPreference forUser(String userId) {
+        return forVersion(dataVersionService.getDataVersion(userId));
+    }
+
+    public Mono<ReadPreference> forUserReactive(String userId) {
+        return dataVersionService.getDataVersionReactive(userId)
+            .map(this::forVersion)
+            .defaultIfEmpty(forVersion(null));
+    }
+
+    /**
+     * @param dataVersion The user's data version, null if the user has never written a trade
+     */
+    public ReadPreference forVersion(UserDataVersion dataVersion) {
+        if (!secondaryEnabled) {
+            return ReadPreference.primary();
+        }
+        if (dataVersion == null || dataVersion.getUpdatedAt() == null) {
+            return analyticsReadPreference;
+        }
+        Instant replicated = dataVersion.getUpdatedAt().toInstant().plus(maxStaleness).plus(HEARTBEAT_ALLOWANCE);
+        return Instant.now().isAfter(replicated) ? analyticsReadPreference : ReadPreference.primary();
+    }
+}
@@ -0,0 +1,251 @@
+package com.tradepro.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import com.tradepro.model.UserDataVersion;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows one change stream over the trades, users and user_data_versions collections and
+ * republishes every change as a {@link DataChangeEvent}, so that caches on this node see writes
+ * made by every node.
+ * <p>
+ * The stream always starts from the current time; no resume token is kept. Every time the stream
+ * opens or fails a {@link DataChangeEvent.Kind#RESET} is published, which drops everything cached
+ * before, so changes made while it was closed, e.g. while the node was down, are never served stale.
+ * <p>
+ * With cache.invalidation.change-stream.pre-images set, deleted trades are attributed to their user
+ * through the pre-image of the delete. That needs MongoDB 6.0 and pre-images switched on for the
+ * trades collection once, by an administrator:
+ * {@code db.runCommand({collMod: "trades", changeStreamPreAndPostImages: {enabled: true}})}.
+ * Deletes without a pre-image evict the caches of every user, once per run of deletes.
+ * <p>
+ * Change streams need a replica set. While the stream is not open {@link #isActive()} is false
+ * and caches that rely on the events must go to the database instead.
+ */
+@Service
+public class ChangeStreamInvalidationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamInvalidationService.class);
+
+    private static final List<String> WATCHED = List.of("trades", "users", "user_data_versions");
+
+    /** FailedToParse and unknown field: the server predates fullDocumentBeforeChange. */
+    private static final Set<Integer> UNSUPPORTED_OPTION = Set.of(9, 40415);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${cache.invalidation.change-stream.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.change-stream.retry-delay:PT30S}")
+    private Duration retryDelay;
+
+    @Value("${cache.invalidation.change-stream.pre-images:false}")
+    private boolean preImages;
+
+    private volatile boolean running;
+    private volatile boolean active;
+    private Thread worker;
+    // Whether deletes of trades come with the deleted trade's userId
+    private boolean tradePreImages;
+
+    // Time of the first change to a trade whose owner is unknown since the last one was published, 0 if none
+    private long unknownTradesSince;
+
+    /**
+     * Whether the change stream is open, i.e. whether every change made from now on will be published.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("Change stream cache invalidation is disabled");
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "change-stream-invalidation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            // The stream waits at most a second for changes
+            worker.join(3000);
+        }
+    }
+
+    private void run() {
+        tradePreImages = preImages;
+        while (running) {
+            boolean failed = false;
+            try {
+                follow();
+            } catch (MongoCommandException e) {
+                failed = true;
+                if (tradePreImages && UNSUPPORTED_OPTION.contains(e.getErrorCode())) {
+                    logger.warn("Server does not support change stream pre-images, deleting a trade evicts every user's caches: {}",
+                        e.getErrorMessage());
+                    tradePreImages = false;
+                    failed = false;
+                } else if (running) {
+                    logger.warn("Change stream failed, caches relying on it are bypassed until it reopens: {}", e.getMessage());
+                }
+            } catch (Exception e) {
+                failed = true;
+                if (running) {
+                    logger.warn("Change stream failed, caches relying on it are bypassed until it reopens: {}", e.getMessage());
+                }
+            } finally {
+                if (active) {
+                    active = false;
+                    eventPublisher.publishEvent(DataChangeEvent.reset());
+                }
+            }
+            if (failed && running) {
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Opens the change stream at the current time and publishes its changes until it fails, is
+     * invalidated or the service stops.
+     */
+    private void follow() {
+        Bson match = Aggregates.match(Filters.or(
+            Filters.in("ns.coll", WATCHED),
+            Filters.eq("operationType", "invalidate")));
+        // Only the fields the events are built from; trades keep their exits and users their password out of it
+        Bson project = Aggregates.project(Projections.include(
+            "operationType", "ns", "documentKey",
+            "fullDocument.userId", "fullDocument.version", "fullDocument.updatedAt",
+            "fullDocumentBeforeChange.userId"));
+
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+            .watch(List.of(match, project))
+            .fullDocument(FullDocument.UPDATE_LOOKUP)
+            .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (tradePreImages) {
+            // Without pre-images enabled on the collection the deletes simply come without one
+            stream = stream.fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            // Anything cached before the stream opened may have missed changes
+            eventPublisher.publishEvent(DataChangeEvent.reset());
+            active = true;
+            logger.info("Change stream cache invalidation started");
+
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null && change.getOperationType() == OperationType.INVALIDATE) {
+                    logger.warn("Change stream was invalidated, reopening it");
+                    return;
+                }
+                if (change != null) {
+                    publish(change);
+                }
+                // Deletes without a pre-image come in runs, e.g. from the archiver; one eviction covers a run
+                if (unknownTradesSince > 0 && (change == null || System.currentTimeMillis() - unknownTradesSince >= 1000)) {
+                    unknownTradesSince = 0;
+                    eventPublisher.publishEvent(DataChangeEvent.trades(null));
+                }
+            }
+        }
+    }
+
+    private void publish(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+        OperationType type = change.getOperationType();
+        if (type == OperationType.DROP || type == OperationType.RENAME) {
+            eventPublisher.publishEvent(DataChangeEvent.reset());
+            return;
+        }
+
+        Document document = change.getFullDocument();
+        String id = change.getDocumentKey() != null ? idString(change.getDocumentKey().get("_id")) : null;
+        try {
+            if ("trades".equals(collection)) {
+                String userId = document != null ? document.getString("userId") : null;
+                Document before = change.getFullDocumentBeforeChange();
+                if (userId == null && before != null) {
+                    // A delete, whose owner is only known from the pre-image
+                    userId = before.getString("userId");
+                }
+                if (userId != null) {
+                    eventPublisher.publishEvent(DataChangeEvent.trades(userId));
+                } else if (unknownTradesSince == 0) {
+                    // Deleted trades without a pre-image no longer tell whose they were
+                    unknownTradesSince = System.currentTimeMillis();
+                }
+            } else if ("users".equals(collection) && id != null) {
+                eventPublisher.publishEvent(DataChangeEvent.user(id));
+            } else if ("user_data_versions".equals(collection) && id != null && document != null) {
+                UserDataVersion dataVersion = new UserDataVersion();
+                dataVersion.setUserId(id);
+                Number version = document.get("version", Number.class);
+                dataVersion.setVersion(version != null ? version.longValue() : 0L);
+                dataVersion.setUpdatedAt(document.get("updatedAt", Date.class));
+                eventPublisher.publishEvent(DataChangeEvent.dataVersion(dataVersion));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to apply change {} on {}: {}", type, collection, e.getMessage());
+        }
+    }
+
+    private static String idString(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : null;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -4,9 +4,22 @@ import com.tradepro.dto.CsvTradeRecord;
 import com.tradepro.dto.BrokerTradeRecord;
 import com.tradepro.model.Exit;
 import com.tradepro.model.Trade;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -24,6 +37,25 @@ public class CsvImportService {
     @Autowired
     private TradeService tradeService;
 
+    @Value("${trades.import.parse-parallelism:0}")
+    private int parseParallelism;
+
+    @Value("${trades.import.parse-chunk-size:1000}")
+    private int parseChunkSize;
+
+    private ForkJoinPool parsePool;
+
+    @PostConstruct
+    void startParsePool() {
+        int parallelism = parseParallelism > 0 ? parseParallelism : Runtime.getRuntime().availableProcessors();
+        parsePool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    void stopParsePool() {
+        parsePool.shutdownNow();
+    }
+
     public List<Trade> processCsvRecords(List<CsvTradeRecord> records, String userId) {
         if (records == null || records.isEmpty()) {
             throw new CsvImportException("No records found in the CSV file. Please check the file and try again.");
@@ -230,14 +262,161 @@ public class CsvImportService {
             throw new CsvImportException("CSV content is empty");
         }
 
-        // Split content into lines and get first line
-        String[] lines = csvContent.split("\n");
-        if (lines.length == 0) {
+        List<BrokerTradeRecord> records = new ArrayList<>();
+        try {
+            parseBrokerRecords(new BufferedReader(new StringReader(csvContent)), records::add);
+        } catch (IOException e) {
+            // Not thrown by a StringReader
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    /**
+     * Parses a broker export as it is read: the broker is detected from the header line alone,
+     * then the data lines are cut into chunks of whole records, which are parsed on
+     * {@link #parsePool} while the next ones are read. Records are handed to the sink in file
+     * order, and no more than twice as many chunks as the pool has threads are held at a time.
+     * @param reader Reader positioned at the header line of the export
+     * @param sink Receives the trade records in file order, on the calling thread
+     * @return Number of records passed to the sink
+     */
+    public int parseBrokerRecords(BufferedReader reader, Consumer<BrokerTradeRecord> sink) throws IOException {
+        String firstLine = reader.readLine();
+        if (firstLine == null) {
             throw new CsvImportException("No lines found in CSV");
         }
+        // Exports saved from spreadsheets start with a byte order mark
+        if (firstLine.startsWith("\uFEFF")) {
+            firstLine = firstLine.substring(1);
+        }
+
+        Supplier<LineParser> parsers = detectBrokerFormat(firstLine);
+        Deque<Future<List<BrokerTradeRecord>>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parsePool.getParallelism() * 2;
+        int count = 0;
+        int lineNumber = 0;
+        try {
+            LineChunk chunk = new LineChunk(parseChunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int recordLine = lineNumber;
+                // A quoted field may hold line breaks, so a record ends where its quotes are balanced
+                boolean inQuotes = hasOddQuotes(line);
+                while (inQuotes) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    line = line + "\n" + next;
+                    inQuotes ^= hasOddQuotes(next);
+                }
+
+                chunk.add(line, recordLine);
+                if (chunk.isFull()) {
+                    inFlight.add(submit(parsers, chunk));
+                    chunk = new LineChunk(parseChunkSize);
+                    while (inFlight.size() >= maxInFlight) {
+                        count += drain(inFlight.poll(), sink);
+                    }
+                }
+            }
+            if (chunk.size > 0) {
+                inFlight.add(submit(parsers, chunk));
+            }
+            while (!inFlight.isEmpty()) {
+                count += drain(inFlight.poll(), sink);
+            }
+        } finally {
+            // Left over only when a chunk failed
+            inFlight.forEach(task -> task.cancel(true));
+        }
+        logger.info("Parsed {} trade records from {} lines", count, lineNumber);
+        return count;
+    }
+
+    private Future<List<BrokerTradeRecord>> submit(Supplier<LineParser> parsers, LineChunk chunk) {
+        return parsePool.submit(() -> {
+            LineParser parser = parsers.get();
+            List<BrokerTradeRecord> records = new ArrayList<>(chunk.size);
+            for (int i = 0; i < chunk.size; i++) {
+                BrokerTradeRecord record = parser.parse(chunk.lines[i], chunk.lineNumbers[i]);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            return records;
+        });
+    }
+
+    // Waits for the chunk and passes its records on; a parse error of the chunk is rethrown as is
+    private static int drain(Future<List<BrokerTradeRecord>> task, Consumer<BrokerTradeRecord> sink) throws IOException {
+        List<BrokerTradeRecord> records;
+        try {
+            records = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing the export");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        records.forEach(sink);
+        return records.size();
+    }
+
+    private static boolean hasOddQuotes(String line) {
+        boolean odd = false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    /**
+     * Consecutive records of an export with the line each of them starts on.
+     */
+    private static final class LineChunk {
+        final String[] lines;
+        final int[] lineNumbers;
+        int size;
+
+        LineChunk(int capacity) {
+            lines = new String[capacity];
+            lineNumbers = new int[capacity];
+        }
+
+        void add(String line, int lineNumber) {
+            lines[size] = line;
+            lineNumbers[size] = lineNumber;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == lines.length;
+        }
+    }
 
+    /**
+     * Parses one data line of a broker export; returns null for lines that are not trades.
+     */
+    @FunctionalInterface
+    private interface LineParser {
+        BrokerTradeRecord parse(String line, int lineNumber);
+    }
+
+    /**
+     * Detects the broker from the header line.
+     * @return Source of parsers for the data lines, one per thread as parsers are not thread-safe
+     */
+    private Supplier<LineParser> detectBrokerFormat(String firstLine) {
         // Detect delimiter and log raw first line for debugging
-        String firstLine = lines[0];
         logger.info("Raw first line: {}", firstLine);
 
         // Try both delimiters
@@ -270,7 +449,7 @@ public class CsvImportService {
             arrayContainsAny(cleanHeaders, "action", "type") &&
             arrayContainsAny(cleanHeaders, "symbol", "security")) {
             logger.info("Detected Fidelity format");
-            return parseFidelityFormat(csvContent);
+            return fidelityLineParser(firstLine);
         } 
         // Check for Robinhood format - Updated to match actual headers
         else if (arrayContainsAny(cleanHeaders, "activity date") &&
@@ -278,7 +457,7 @@ public class CsvImportService {
                  arrayContainsAny(cleanHeaders, "trans code") &&
                  arrayContainsAny(cleanHeaders, "quantity", "amount")) {
             logger.info("Detected Robinhood format");
-            return parseRobinhoodFormat(csvContent);
+            return robinhoodLineParser(firstLine);
         }
 
         // Log all attempted matches for debugging
@@ -356,101 +535,70 @@ public class CsvImportService {
         return records;
     }
 
-      private List<BrokerTradeRecord> parseRobinhoodFormat(String csvContent) {
-        List<BrokerTradeRecord> records = new ArrayList<>();
-        String[] lines = csvContent.split("\n");
-        
+    private Supplier<LineParser> robinhoodLineParser(String headerLine) {
         // Validate Robinhood headers
-        String[] headers = parseCsvLine(lines[0]);
+        String[] headers = fields(new CsvTokenizer(','), headerLine);
         if (!containsHeaders(headers, "activity date", "instrument", "trans code", "quantity", "price")) {
             throw new CsvImportException("Invalid Robinhood CSV format");
         }
-        
-        // Skip header
-        for (int i = 1; i < lines.length; i++) {
-            if (lines[i].trim().isEmpty()) continue;
-            
-            try {
-                String[] fields = parseCsvLine(lines[i]);
-                
-                // Skip if we don't have enough fields
-                if (fields.length < 9) {
-                    logger.debug("Skipping line {} - insufficient fields: {}", i, lines[i]);
-                    continue;
-                }
+        return () -> {
+            CsvTokenizer tokenizer = new CsvTokenizer(',');
+            return (line, i) -> parseRobinhoodLine(tokenizer, line, i);
+        };
+    }
 
-                // Skip non-trade transactions
-                String transCode = fields[5].trim().toUpperCase();
-                if (!isTradeTransaction(transCode)) {
-                    continue;
-                }
+    private BrokerTradeRecord parseRobinhoodLine(CsvTokenizer fields, String line, int i) {
+        if (line.trim().isEmpty()) return null;
 
-                BrokerTradeRecord record = new BrokerTradeRecord();
-                
-                record.setTradeDate(parseLocalDateTime(fields[0].trim())); // Activity Date
-                record.setSymbol(fields[3].trim()); // Instrument
-                
-                // Map transaction codes
-                String transactionCode = fields[5].trim().toUpperCase();
-                if (transactionCode.equals("BTO")) {
-                    record.setAction("BUY");
-                    record.setOpenClose("OPEN");
-                } else if (transactionCode.equals("STC")) {
-                    record.setAction("SELL");
-                    record.setOpenClose("CLOSE");
-                }
-                
-                record.setQuantity(Double.parseDouble(fields[6].trim())); // Quantity
-                record.setPrice(Double.parseDouble(fields[7].trim().replace("$", "").replace(",", "").trim())); // Price
-                record.setAmount(Double.parseDouble(fields[8].trim().replace("$", "").replace(",", "").replace("(", "-").replace(")", "").trim())); // Amount
-                
-                // Parse option details from description
-                String description = fields[4].trim();
-                if (description.contains("Call") || description.contains("Put")) {
-                    record.setType("OPTION");
-                    parseOptionDetails(description, record);
-                } else {
-                    record.setType("STOCK");
-                }
-                
-                record.setBroker("ROBINHOOD");
-                records.add(record);
-            } catch (Exception e) {
-                logger.error("Error parsing Robinhood format line {}: {}", i, e.getMessage());
-                throw new CsvImportException("Error parsing line " + i + ": " + e.getMessage());
+        try {
+            fields.tokenize(line);
+
+            // Skip if we don't have enough fields
+            if (fields.count() < 9) {
+                logger.debug("Skipping line {} - insufficient fields: {}", i, line);
+                return null;
             }
-        }
-        return records;
-    }
 
-    private String[] parseCsvLine(String line) {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inQuotes = false;
-        
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            
-            if (c == '"') {
-                // If we see a quote, toggle inQuotes flag
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                // If we see a comma and we're not in quotes, add the token
-                tokens.add(sb.toString().trim());
-                sb.setLength(0);
+            // Skip non-trade transactions
+            String transactionCode = fields.field(5).toUpperCase();
+            if (!isTradeTransaction(transactionCode)) {
+                return null;
+            }
+
+            BrokerTradeRecord record = new BrokerTradeRecord();
+
+            record.setTradeDate(parseLocalDateTime(fields.field(0))); // Activity Date
+            record.setSymbol(fields.field(3)); // Instrument
+
+            // Map transaction codes
+            if (transactionCode.equals("BTO")) {
+                record.setAction("BUY");
+                record.setOpenClose("OPEN");
+            } else if (transactionCode.equals("STC")) {
+                record.setAction("SELL");
+                record.setOpenClose("CLOSE");
+            }
+
+            // Quantities are plain numbers; unlike amounts, "$", "," or parentheses make the line fail
+            record.setQuantity(Double.parseDouble(fields.field(6))); // Quantity
+            record.setPrice(fields.number(7)); // Price
+            record.setAmount(fields.number(8)); // Amount
+
+            // Parse option details from description
+            String description = fields.field(4);
+            if (description.contains("Call") || description.contains("Put")) {
+                record.setType("OPTION");
+                parseOptionDetails(description, record);
             } else {
-                // Otherwise, append the character
-                sb.append(c);
+                record.setType("STOCK");
             }
+
+            record.setBroker("ROBINHOOD");
+            return record;
+        } catch (Exception e) {
+            logger.error("Error parsing Robinhood format line {}: {}", i, e.getMessage());
+            throw new CsvImportException("Error parsing line " + i + ": " + e.getMessage());
         }
-        
-        // Add the last token
-        tokens.add(sb.toString().trim());
-        
-        // Remove quotes from all tokens
-        return tokens.stream()
-            .map(token -> token.replaceAll("^\"|\"$", ""))
-            .toArray(String[]::new);
     }
 
     private boolean isTradeTransaction(String transCode) {
@@ -458,18 +606,15 @@ public class CsvImportService {
                transCode.equals("Buy") || transCode.equals("Sell");
     }
 
-    private List<BrokerTradeRecord> parseFidelityFormat(String csvContent) {
-        List<BrokerTradeRecord> records = new ArrayList<>();
-        String[] lines = csvContent.split("\n");
-        
+    private Supplier<LineParser> fidelityLineParser(String headerLine) {
+        // Detect delimiter from first line
+        char delimiter = headerLine.contains("\t") ? '\t' : ',';
+        logger.info("Using delimiter: {}", delimiter == '\t' ? "TAB" : "COMMA");
+
+        Map<String, Integer> headerIndices = new HashMap<>();
         try {
-            // Detect delimiter from first line
-            String delimiter = lines[0].contains("\t") ? "\t" : ",";
-            logger.info("Using delimiter: {}", delimiter.equals("\t") ? "TAB" : "COMMA");
-            
             // Get header indices
-            String[] headers = splitCsvLine(lines[0], delimiter);
-            Map<String, Integer> headerIndices = new HashMap<>();
+            String[] headers = fields(new CsvTokenizer(delimiter), headerLine);
             for (int i = 0; i < headers.length; i++) {
                 String cleanHeader = headers[i].trim().toLowerCase()
                     .replace("($)", "")
@@ -477,116 +622,138 @@ public class CsvImportService {
                     .trim();
                 headerIndices.put(cleanHeader, i);
             }
-            
-            logger.info("Header mapping: {}", headerIndices);
-            
-            // Skip header
-            for (int i = 1; i < lines.length; i++) {
-                String line = lines[i].trim();
-                if (line.isEmpty()) continue;
-                
+        } catch (Exception e) {
+            logger.error("Error parsing Fidelity format: {}", e.getMessage());
+            throw new CsvImportException("Error parsing Fidelity format: " + e.getMessage());
+        }
+
+        logger.info("Header mapping: {}", headerIndices);
+        return () -> {
+            CsvTokenizer tokenizer = new CsvTokenizer(delimiter);
+            return (line, i) -> {
                 try {
-                    // Split line handling quoted values
-                    String[] fields = splitCsvLine(line, delimiter);
-                    
-                    // Validate field count
-                    if (fields.length < headerIndices.size()) {
-                        logger.warn("Skipping line {} - insufficient fields: {}", i, line);
-                        continue;
+                    return parseFidelityLine(tokenizer, line.trim(), i, headerIndices);
+                } catch (Exception e) {
+                    logger.error("Error parsing Fidelity format: {}", e.getMessage());
+                    throw new CsvImportException("Error parsing Fidelity format: " + e.getMessage());
+                }
+            };
+        };
+    }
+
+    private BrokerTradeRecord parseFidelityLine(CsvTokenizer fields, String line, int i, Map<String, Integer> headerIndices) {
+        if (line.isEmpty()) return null;
+
+        try {
+            // Split line handling quoted values
+            fields.tokenize(line);
+
+            // Validate field count
+            if (fields.count() < headerIndices.size()) {
+                logger.warn("Skipping line {} - insufficient fields: {}", i, line);
+                return null;
+            }
+
+            // Skip non-trade transactions
+            String action = fields.field(headerIndices.get("action")).toUpperCase();
+            String description = fields.field(headerIndices.get("description")).toUpperCase();
+
+            if (shouldSkipTransaction(action, description)) {
+                logger.debug("Skipping non-trade transaction: {}", action);
+                return null;
+            }
+
+            BrokerTradeRecord record = new BrokerTradeRecord();
+
+            try {
+                // Map fields using header indices with error handling
+                record.setSymbol(getFieldValue(fields, headerIndices, "symbol"));
+                record.setTradeDate(parseDateTime(getFieldValue(fields, headerIndices, "run date")));
+                record.setPrice(parseDouble(fields, headerIndices, "price"));
+                record.setQuantity(parseDouble(fields, headerIndices, "quantity"));
+                record.setCommission(parseDoubleOrDefault(fields, headerIndices, "commission", 0.0));
+                record.setFees(parseDoubleOrDefault(fields, headerIndices, "fees", 0.0));
+                record.setAmount(parseDoubleOrDefault(fields, headerIndices, "amount", 0.0));
+
+                // Set action (BUY/SELL) based on opening/closing transaction
+                if (action.contains("OPENING")) {
+                    // For opening transactions, use the actual action (BUY for BOUGHT)
+                    if (action.contains("BOUGHT") || action.contains("BUY")) {
+                        record.setAction("BUY");
+                    } else if (action.contains("SOLD") || action.contains("SELL")) {
+                        record.setAction("SELL");  // This will be for SELL TO OPEN
                     }
-                    
-                    // Skip non-trade transactions
-                    String action = fields[headerIndices.get("action")].trim().toUpperCase();
-                    String description = fields[headerIndices.get("description")].trim().toUpperCase();
-                    
-                    if (shouldSkipTransaction(action, description)) {
-                        logger.debug("Skipping non-trade transaction: {}", action);
-                        continue;
+                } else {
+                    // For closing transactions, use the opposite of the action
+                    // If it's SOLD TO CLOSE, it means original position was BUY
+                    // If it's BOUGHT TO CLOSE, it means original position was SELL
+                    if (action.contains("BOUGHT") || action.contains("BUY")) {
+                        record.setAction("SELL");  // Original position was SELL
+                    } else if (action.contains("SOLD") || action.contains("SELL")) {
+                        record.setAction("BUY");   // Original position was BUY
                     }
+                }
 
-                    BrokerTradeRecord record = new BrokerTradeRecord();
-                    
-                    try {
-                        // Map fields using header indices with error handling
-                        record.setSymbol(getFieldValue(fields, headerIndices, "symbol"));
-                        record.setTradeDate(parseDateTime(getFieldValue(fields, headerIndices, "run date")));
-                        record.setPrice(parseDouble(getFieldValue(fields, headerIndices, "price")));
-                        record.setQuantity(parseDouble(getFieldValue(fields, headerIndices, "quantity")));
-                        record.setCommission(parseDoubleOrDefault(getFieldValue(fields, headerIndices, "commission"), 0.0));
-                        record.setFees(parseDoubleOrDefault(getFieldValue(fields, headerIndices, "fees"), 0.0));
-                        record.setAmount(parseDoubleOrDefault(getFieldValue(fields, headerIndices, "amount"), 0.0));
-
-                        // Set action (BUY/SELL) based on opening/closing transaction
-                        if (action.contains("OPENING")) {
-                            // For opening transactions, use the actual action (BUY for BOUGHT)
-                            if (action.contains("BOUGHT") || action.contains("BUY")) {
-                                record.setAction("BUY");
-                            } else if (action.contains("SOLD") || action.contains("SELL")) {
-                                record.setAction("SELL");  // This will be for SELL TO OPEN
-                            }
-                        } else {
-                            // For closing transactions, use the opposite of the action
-                            // If it's SOLD TO CLOSE, it means original position was BUY
-                            // If it's BOUGHT TO CLOSE, it means original position was SELL
-                            if (action.contains("BOUGHT") || action.contains("BUY")) {
-                                record.setAction("SELL");  // Original position was SELL
-                            } else if (action.contains("SOLD") || action.contains("SELL")) {
-                                record.setAction("BUY");   // Original position was BUY
-                            }
-                        }
-
-                        // Also update the openClose field
-                        record.setOpenClose(action.contains("OPENING") ? "OPEN" : "CLOSE");
-
-                        // Handle options
-                        if (description.contains("CALL") || description.contains("PUT")) {
-                            record.setType("OPTION");
-                            record.setOptionType(description.contains("CALL") ? "CALL" : "PUT");
-                            parseOptionDetails(description, record);
-                        } else {
-                            record.setType("STOCK");
-                        }
-
-                        record.setBroker("FIDELITY");
-                        records.add(record);
-                        logger.debug("Successfully parsed record: {}", record.getSymbol());
-                        
-                    } catch (Exception e) {
-                        logger.warn("Error parsing fields for line {}: {}", i, e.getMessage());
-                        continue; // Skip this record but continue processing others
-                    }
-                    
-                } catch (Exception e) {
-                    logger.error("Error parsing line {}: {}", i, e.getMessage());
-                    throw new CsvImportException("Error parsing line " + i + ": " + e.getMessage());
+                // Also update the openClose field
+                record.setOpenClose(action.contains("OPENING") ? "OPEN" : "CLOSE");
+
+                // Handle options
+                if (description.contains("CALL") || description.contains("PUT")) {
+                    record.setType("OPTION");
+                    record.setOptionType(description.contains("CALL") ? "CALL" : "PUT");
+                    parseOptionDetails(description, record);
+                } else {
+                    record.setType("STOCK");
                 }
+
+                record.setBroker("FIDELITY");
+                logger.debug("Successfully parsed record: {}", record.getSymbol());
+                return record;
+
+            } catch (Exception e) {
+                logger.warn("Error parsing fields for line {}: {}", i, e.getMessage());
+                return null; // Skip this record but continue processing others
             }
+
         } catch (Exception e) {
-            logger.error("Error parsing Fidelity format: {}", e.getMessage());
-            throw new CsvImportException("Error parsing Fidelity format: " + e.getMessage());
+            logger.error("Error parsing line {}: {}", i, e.getMessage());
+            throw new CsvImportException("Error parsing line " + i + ": " + e.getMessage());
         }
-        
-        return records;
     }
 
     // Helper methods for safer field access and parsing
-    private String getFieldValue(String[] fields, Map<String, Integer> headerIndices, String headerName) {
+    private String getFieldValue(CsvTokenizer fields, Map<String, Integer> headerIndices, String headerName) {
         Integer index = headerIndices.get(headerName);
-        if (index == null || index >= fields.length) {
+        if (index == null || index >= fields.count()) {
             return "";
         }
-        return fields[index].trim();
+        return fields.field(index);
+    }
+
+    private double parseDouble(CsvTokenizer fields, Map<String, Integer> headerIndices, String headerName) {
+        Integer index = headerIndices.get(headerName);
+        if (index == null || index >= fields.count() || fields.isBlank(index)) return 0.0;
+        return fields.number(index);
     }
 
-    private double parseDoubleOrDefault(String value, double defaultValue) {
+    private double parseDoubleOrDefault(CsvTokenizer fields, Map<String, Integer> headerIndices, String headerName, double defaultValue) {
+        Integer index = headerIndices.get(headerName);
+        if (index == null || index >= fields.count() || fields.isBlank(index)) return defaultValue;
         try {
-            if (value == null || value.trim().isEmpty()) return defaultValue;
-            return parseDouble(value);
+            return fields.number(index);
         } catch (Exception e) {
             return defaultValue;
         }
     }
 
+    private static String[] fields(CsvTokenizer tokenizer, String line) {
+        String[] fields = new String[tokenizer.tokenize(line)];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = tokenizer.field(i);
+        }
+        return fields;
+    }
+
     private void parseOptionDetails(String description, BrokerTradeRecord record) {
         try {
             // Example: "PUT (SPY) SPDR S&P500 ETF DEC 20 24 $600 (100 SHS)"
@@ -665,15 +832,6 @@ public class CsvImportService {
         }
     }
 
-    private double parseDouble(String value) {
-        if (value == null || value.trim().isEmpty()) return 0.0;
-        return Double.parseDouble(value.replace("$", "")
-                                     .replace(",", "")
-                                     .replace("(", "-")
-                                     .replace(")", "")
-                                     .trim());
-    }
-
     private LocalDateTime parseOptionExpirationDate(String dateStr) {
         try {
             // Define patterns as strings
@@ -699,47 +857,6 @@ public class CsvImportService {
         }
     }
 
-    private String[] splitCsvLine(String line, String delimiter) {
-        List<String> result = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder field = new StringBuilder();
-        
-        // Handle empty or null lines
-        if (line == null || line.trim().isEmpty()) {
-            return new String[0];
-        }
-        
-        char[] chars = line.toCharArray();
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
-            
-            if (c == '"') {
-                // Handle escaped quotes (double quotes)
-                if (i + 1 < chars.length && chars[i + 1] == '"') {
-                    field.append('"');
-                    i++; // Skip next quote
-                } else {
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == delimiter.charAt(0) && !inQuotes) {
-                result.add(field.toString().trim());
-                field = new StringBuilder();
-            } else {
-                field.append(c);
-            }
-        }
-        
-        // Add the last field
-        result.add(field.toString().trim());
-        
-        // Validate field count based on header
-        if (result.isEmpty()) {
-            return new String[0];
-        }
-        
-        return result.toArray(new String[0]);
-    }
-
     private LocalDateTime parseDateTime(String dateStr) {
         try {
             // Remove any quotes and trim
@@ -0,0 +1,168 @@
+package com.tradepro.service;
+
+import java.util.Arrays;
+
+/**
+ * Splits delimited lines into fields without copying them field by field: every line is read
+ * into one char buffer that is reused for the next, and a field is a slice of that buffer that
+ * only becomes a String when asked for. Quoted fields may contain the delimiter, and two quotes
+ * inside them stand for one. Fields are trimmed. A tokenizer is reused line after line by one
+ * parse and is not thread-safe.
+ */
+final class CsvTokenizer {
+
+    // Powers of ten that a double holds exactly, so mantissa / 10^scale is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Up to 15 digits always fit the 53 bit mantissa of a double
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final char delimiter;
+    private char[] buffer = new char[256];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+
+    CsvTokenizer(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Splits the line, replacing the fields of the previous one.
+     * @return Number of fields, 1 for an empty line
+     */
+    int tokenize(String line) {
+        int length = line.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        line.getChars(0, length, buffer, 0);
+
+        // Quotes are dropped by writing the field back over itself, never ahead of where it is read
+        count = 0;
+        int write = 0;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        for (int read = 0; read < length; read++) {
+            char c = buffer[read];
+            if (c == '"') {
+                if (inQuotes && read + 1 < length && buffer[read + 1] == '"') {
+                    buffer[write++] = '"';
+                    read++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == delimiter && !inQuotes) {
+                addField(fieldStart, write);
+                fieldStart = write;
+            } else {
+                buffer[write++] = c;
+            }
+        }
+        addField(fieldStart, write);
+        return count;
+    }
+
+    int count() {
+        return count;
+    }
+
+    String field(int index) {
+        checkIndex(index);
+        return new String(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    boolean isBlank(int index) {
+        checkIndex(index);
+        return starts[index] == ends[index];
+    }
+
+    /**
+     * Parses the field as a number written the way brokers print amounts: dollar signs and
+     * thousands separators are ignored and parentheses mean a negative amount, so "$1,234.56"
+     * is 1234.56 and "($12.00)" is -12.0. Plain decimals are parsed straight from the buffer;
+     * anything longer or more unusual, such as exponents, goes through {@link Double#parseDouble}
+     * after the same cleanup.
+     * @throws NumberFormatException If the field is blank or not a number
+     */
+    double number(int index) {
+        checkIndex(index);
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        boolean started = false;
+        boolean negative = false;
+        boolean parenthesized = false;
+        boolean closed = false;
+        for (int i = starts[index]; i < ends[index]; i++) {
+            char c = buffer[i];
+            if (c == '$' || c == ',') {
+                continue;
+            }
+            if (closed) {
+                return parseSlow(index);
+            }
+            if (c >= '0' && c <= '9') {
+                // Leading zeros take no precision
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > MAX_EXACT_DIGITS) {
+                        return parseSlow(index);
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+                started = true;
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if ((c == '-' || c == '+' || c == '(') && !started && scale < 0 && !negative && !parenthesized) {
+                negative = c != '+';
+                parenthesized = c == '(';
+            } else if (c == ')' && parenthesized && started) {
+                closed = true;
+            } else {
+                return parseSlow(index);
+            }
+        }
+        if (!started || parenthesized != closed || scale >= POWERS_OF_TEN.length) {
+            return parseSlow(index);
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    // Same cleanup as the field parsers applied before the tokenizer existed
+    private double parseSlow(int index) {
+        return Double.parseDouble(field(index)
+            .replace("$", "")
+            .replace(",", "")
+            .replace("(", "-")
+            .replace(")", "")
+            .trim());
+    }
+
+    private void addField(int start, int end) {
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new ArrayIndexOutOfBoundsException("Field " + index + " of a line with " + count + " fields");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.tradepro.service;
+
+import com.tradepro.model.UserDataVersion;
+
+/**
+ * Application event published by {@link ChangeStreamInvalidationService} for a change made to
+ * the trades, users or data versions by any node, so that node-local caches can drop what
+ * the change made stale.
+ */
+public class DataChangeEvent {
+
+    public enum Kind {
+        /** A trade of the user changed; a null user means the owner is unknown. */
+        TRADES,
+        /** The user document changed or was deleted. */
+        USER,
+        /** The user's data version moved on to {@link #getDataVersion()}. */
+        DATA_VERSION,
+        /** Changes may have been missed, so every cache that relies on these events must be dropped. */
+        RESET
+    }
+
+    private final Kind kind;
+    private final String userId;
+    private final UserDataVersion dataVersion;
+
+    private DataChangeEvent(Kind kind, String userId, UserDataVersion dataVersion) {
+        this.kind = kind;
+        this.userId = userId;
+        this.dataVersion = dataVersion;
+    }
+
+    public static DataChangeEvent trades(String userId) {
+        return new DataChangeEvent(Kind.TRADES, userId, null);
+    }
+
+    public static DataChangeEvent user(String userId) {
+        return new DataChangeEvent(Kind.USER, userId, null);
+    }
+
+    public static DataChangeEvent dataVersion(UserDataVersion dataVersion) {
+        return new DataChangeEvent(Kind.DATA_VERSION, dataVersion.getUserId(), dataVersion);
+    }
+
+    public static DataChangeEvent reset() {
+        return new DataChangeEvent(Kind.RESET, null, null);
+    }
+
+    public Kind getKind() { return kind; }
+
+    public String getUserId() { return userId; }
+
+    public UserDataVersion getDataVersion() { return dataVersion; }
+
+    @Override
+    public String toString() {
+        return kind + (userId != null ? "(" + userId + ")" : "");
+    }
+}
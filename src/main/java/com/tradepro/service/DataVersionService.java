@@ -0,0 +1,156 @@
+package com.tradepro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tradepro.model.Trade;
+import com.tradepro.model.UserDataVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the per-user {@link UserDataVersion} counter. It is bumped after every other write
+ * listener has run, so a reader that sees a new version also sees the derived data of that write.
+ * While {@link ChangeStreamInvalidationService} is active versions are served from a node-local
+ * cache that every node's bumps are merged into, so checking whether a cached result is still
+ * current no longer costs a read.
+ */
+@Service
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class DataVersionService implements TradeWriteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataVersionService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private ChangeStreamInvalidationService changeStreamInvalidationService;
+
+    private final Cache<String, UserDataVersion> versions;
+
+    public DataVersionService(@Value("${analytics.data-version.max-cached-users:10000}") int maxCachedUsers) {
+        this.versions = Caffeine.newBuilder().maximumSize(maxCachedUsers).build();
+    }
+
+    /**
+     * Returns the user's current data version, 0 if the user has never written a trade.
+     */
+    public long getVersion(String userId) {
+        UserDataVersion dataVersion = getDataVersion(userId);
+        return dataVersion != null ? dataVersion.getVersion() : 0L;
+    }
+
+    /**
+     * Returns the user's data version with the time of the last write, null if the user has never written a trade.
+     */
+    public UserDataVersion getDataVersion(String userId) {
+        if (!changeStreamInvalidationService.isActive()) {
+            return mongoTemplate.findById(userId, UserDataVersion.class);
+        }
+        UserDataVersion cached = versions.getIfPresent(userId);
+        if (cached != null) {
+            return cached.getUpdatedAt() != null ? cached : null;
+        }
+        return remember(userId, mongoTemplate.findById(userId, UserDataVersion.class));
+    }
+
+    /**
+     * Non-blocking variant of {@link #getDataVersion}; completes empty if the user has never written a trade.
+     */
+    public Mono<UserDataVersion> getDataVersionReactive(String userId) {
+        if (!changeStreamInvalidationService.isActive()) {
+            return reactiveMongoTemplate.findById(userId, UserDataVersion.class);
+        }
+        UserDataVersion cached = versions.getIfPresent(userId);
+        if (cached != null) {
+            return cached.getUpdatedAt() != null ? Mono.just(cached) : Mono.empty();
+        }
+        return reactiveMongoTemplate.findById(userId, UserDataVersion.class)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(dataVersion -> Mono.justOrEmpty(remember(userId, dataVersion.orElse(null))));
+    }
+
+    public void bump(String userId) {
+        UserDataVersion bumped = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(userId)),
+            new Update().inc("version", 1).currentDate("updatedAt"),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            UserDataVersion.class);
+        if (bumped != null) {
+            merge(bumped);
+        }
+        logger.debug("Bumped data version of user {}", userId);
+    }
+
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (event.getKind() == DataChangeEvent.Kind.DATA_VERSION) {
+            merge(event.getDataVersion());
+        } else if (event.getKind() == DataChangeEvent.Kind.RESET) {
+            versions.invalidateAll();
+        }
+    }
+
+    /**
+     * Caches a version read from the database. A user without one is cached as version 0
+     * without an update time, so that repeated reads of users who never wrote stay local too.
+     */
+    private UserDataVersion remember(String userId, UserDataVersion dataVersion) {
+        UserDataVersion entry = dataVersion;
+        if (entry == null) {
+            entry = new UserDataVersion();
+            entry.setUserId(userId);
+        }
+        merge(entry);
+        return dataVersion;
+    }
+
+    /**
+     * Keeps the higher of the cached and the given version, as reads, local bumps and change
+     * events of the same user can arrive in any order.
+     */
+    private void merge(UserDataVersion dataVersion) {
+        versions.asMap().merge(dataVersion.getUserId(), dataVersion,
+            (cached, update) -> update.getVersion() > cached.getVersion() ? update : cached);
+    }
+
+    @Override
+    public void onTradeWritten(Trade before, Trade after, Date writeStartedAt) {
+        bump(after != null ? after.getUserId() : before.getUserId());
+        if (before != null && after != null && before.getUserId() != null
+                && !before.getUserId().equals(after.getUserId())) {
+            bump(before.getUserId());
+        }
+    }
+
+    @Override
+    public void onTradesInserted(List<Trade> inserted) {
+        Set<String> userIds = new LinkedHashSet<>();
+        inserted.forEach(trade -> userIds.add(trade.getUserId()));
+        userIds.remove(null);
+        userIds.forEach(this::bump);
+    }
+}
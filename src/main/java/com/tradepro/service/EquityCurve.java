@@ -0,0 +1,151 @@
+package com.tradepro.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable cumulative P/L curve of one user, one point per day with realized P/L.
+ * Alongside the equity itself it keeps prefix arrays of the running peak, the day it was set,
+ * the maximum drawdown and the longest drawdown so far. Any period that starts at the beginning
+ * of the curve is answered with binary searches alone; periods starting later scan only the
+ * days inside the period.
+ */
+public class EquityCurve {
+
+    private final long[] days;
+    private final double[] equity;
+    private final double[] runningPeak;
+    private final long[] runningPeakDay;
+    private final double[] maxDrawdownSoFar;
+    private final long[] longestDrawdownSoFar;
+    private final long version;
+
+    /**
+     * @param days Epoch days in ascending order
+     * @param pnl Realized P/L of each day
+     * @param version Snapshot version the curve was built from
+     */
+    public EquityCurve(long[] days, double[] pnl, long version) {
+        int n = days.length;
+        this.days = days;
+        this.equity = new double[n];
+        this.runningPeak = new double[n];
+        this.runningPeakDay = new long[n];
+        this.maxDrawdownSoFar = new double[n];
+        this.longestDrawdownSoFar = new long[n];
+        this.version = version;
+
+        double cumulative = 0.0;
+        double peak = 0.0;
+        long peakDay = n > 0 ? days[0] : 0;
+        double maxDrawdown = 0.0;
+        long longest = 0;
+        for (int i = 0; i < n; i++) {
+            cumulative += pnl[i];
+            if (cumulative >= peak) {
+                longest = Math.max(longest, days[i] - peakDay);
+                peak = cumulative;
+                peakDay = days[i];
+            } else {
+                maxDrawdown = Math.max(maxDrawdown, peak - cumulative);
+            }
+            equity[i] = cumulative;
+            runningPeak[i] = peak;
+            runningPeakDay[i] = peakDay;
+            maxDrawdownSoFar[i] = maxDrawdown;
+            longestDrawdownSoFar[i] = longest;
+        }
+    }
+
+    public long getVersion() { return version; }
+
+    public int size() { return days.length; }
+
+    public long dayAt(int index) { return days[index]; }
+
+    public double equityAt(int index) { return equity[index]; }
+
+    /**
+     * Index of the first point on or after the given day, or size() if there is none.
+     */
+    public int firstIndexFrom(long day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Index of the last point on or before the given day, or -1 if there is none.
+     */
+    public int lastIndexTo(long day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Equity at the end of the given day, carried forward from the last day with P/L.
+     */
+    public double equityOn(long day) {
+        int index = lastIndexTo(day);
+        return index >= 0 ? equity[index] : 0.0;
+    }
+
+    /**
+     * Drawdown statistics of the period [from, to], measured against peaks reached inside the
+     * period, with the equity at the start of the period as the first peak.
+     */
+    public Drawdown drawdown(long from, long to) {
+        int lo = firstIndexFrom(from);
+        int hi = lastIndexTo(to);
+        double startEquity = lo > 0 ? equity[lo - 1] : 0.0;
+        double allTimePeak = hi >= 0 ? runningPeak[hi] : 0.0;
+        if (lo > hi) {
+            return new Drawdown(startEquity, startEquity, allTimePeak, startEquity, 0.0, 0.0, 0, 0);
+        }
+
+        double peak;
+        long peakDay;
+        double maxDrawdown;
+        long longestDuration;
+        if (lo == 0) {
+            // Period covers the start of the curve, so the prefix arrays already hold the answer
+            peak = runningPeak[hi];
+            peakDay = runningPeakDay[hi];
+            maxDrawdown = maxDrawdownSoFar[hi];
+            longestDuration = longestDrawdownSoFar[hi];
+        } else {
+            peak = startEquity;
+            peakDay = from;
+            maxDrawdown = 0.0;
+            longestDuration = 0;
+            for (int i = lo; i <= hi; i++) {
+                if (equity[i] >= peak) {
+                    longestDuration = Math.max(longestDuration, days[i] - peakDay);
+                    peak = equity[i];
+                    peakDay = days[i];
+                } else {
+                    maxDrawdown = Math.max(maxDrawdown, peak - equity[i]);
+                }
+            }
+        }
+
+        double endEquity = equity[hi];
+        double currentDrawdown = peak - endEquity;
+        long currentDuration = currentDrawdown > 0 ? Math.max(0, to - peakDay) : 0;
+        longestDuration = Math.max(longestDuration, currentDuration);
+        return new Drawdown(startEquity, endEquity, allTimePeak, peak, maxDrawdown, currentDrawdown,
+            longestDuration, currentDuration);
+    }
+
+    /**
+     * Drawdown figures of one period. Durations are in days.
+     */
+    public record Drawdown(
+        double startEquity,
+        double endEquity,
+        double runningPeak,
+        double periodPeak,
+        double maxDrawdown,
+        double currentDrawdown,
+        long maxDrawdownDuration,
+        long currentDrawdownDuration
+    ) {}
+}
@@ -0,0 +1,74 @@
+package com.tradepro.service;
+
+import com.tradepro.model.PnLBucket;
+import com.tradepro.model.UserAnalytics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds and caches per-user {@link EquityCurve}s from the daily P/L series.
+ * A cached curve is reused while the user's analytics snapshot still has the version the
+ * curve was built from, which also keeps curves on different nodes in step; curves of users whose
+ * trades changed are dropped as soon as the change stream reports it.
+ */
+@Service
+public class EquityCurveService {
+
+    @Autowired
+    private UserAnalyticsService userAnalyticsService;
+
+    @Autowired
+    private PnLSeriesService pnlSeriesService;
+
+    private final Map<String, EquityCurve> curves;
+
+    public EquityCurveService(@Value("${analytics.equity-curve.max-cached-users:1000}") int maxCachedUsers) {
+        this.curves = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EquityCurve> eldest) {
+                return size() > maxCachedUsers;
+            }
+        });
+    }
+
+    public EquityCurve getCurve(String userId) {
+        UserAnalytics snapshot = userAnalyticsService.getSnapshot(userId);
+        long version = snapshot.getVersion() != null ? snapshot.getVersion() : -1;
+
+        EquityCurve curve = curves.get(userId);
+        if (curve != null && curve.getVersion() == version) {
+            return curve;
+        }
+
+        List<PnLBucket> buckets = pnlSeriesService.getSeries(userId, PnLBucket.DAY);
+        long[] days = new long[buckets.size()];
+        double[] pnl = new double[buckets.size()];
+        for (int i = 0; i < buckets.size(); i++) {
+            days[i] = LocalDate.parse(buckets.get(i).getBucket()).toEpochDay();
+            pnl[i] = buckets.get(i).getPnl();
+        }
+        curve = new EquityCurve(days, pnl, version);
+        curves.put(userId, curve);
+        return curve;
+    }
+
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (event.getKind() != DataChangeEvent.Kind.TRADES) {
+            return;
+        }
+        if (event.getUserId() != null) {
+            curves.remove(event.getUserId());
+        } else {
+            curves.clear();
+        }
+    }
+}
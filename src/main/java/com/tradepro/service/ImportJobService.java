@@ -0,0 +1,422 @@
+package com.tradepro.service;
+
+import com.tradepro.dto.BrokerTradeRecord;
+import com.tradepro.dto.BulkImportResult;
+import com.tradepro.exception.CsvImportException;
+import com.tradepro.model.ImportJob;
+import com.tradepro.model.Trade;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs broker export imports outside the request that uploads them. The upload is spooled to a
+ * temporary file and parsed, matched and saved by one of trades.import.jobs.threads workers,
+ * with at most trades.import.jobs.queue-capacity jobs waiting; beyond that submissions are
+ * rejected. Progress is written to the job's {@link ImportJob} document at most once per
+ * trades.import.jobs.progress-interval, so any node can report it, and pushed to the
+ * Server-Sent Events streams subscribed to the job. Heartbeats and progress relays run on a
+ * scheduler of their own, as the shared one is held for hours by nightly jobs such as the
+ * archiver, and a job without heartbeats is taken for lost after trades.import.jobs.stale-after.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+    private static final String SHUTDOWN_MESSAGE = "Import was interrupted by a server shutdown";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Value("${trades.import.jobs.threads:2}")
+    private int threads;
+
+    @Value("${trades.import.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${trades.import.jobs.progress-interval:PT1S}")
+    private Duration progressInterval;
+
+    @Value("${trades.import.jobs.heartbeat-interval:PT30S}")
+    private Duration heartbeatInterval;
+
+    @Value("${trades.import.jobs.stale-after:PT2M}")
+    private Duration staleAfter;
+
+    @Value("${trades.import.jobs.retention:P7D}")
+    private Duration retention;
+
+    @Value("${trades.import.jobs.max-errors:100}")
+    private int maxErrors;
+
+    @Value("${trades.import.jobs.sse-timeout:PT30M}")
+    private Duration sseTimeout;
+
+    @Value("${trades.import.jobs.shutdown-timeout:PT30S}")
+    private Duration shutdownTimeout;
+
+    @Value("${trades.bulk-import.batch-size:1000}")
+    private int saveBatchSize;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService scheduler;
+
+    // Jobs queued or running on this node
+    private final Map<String, ImportJob> active = new ConcurrentHashMap<>();
+    // Ids of the jobs a worker has taken; only that worker writes to them from then on
+    private final Set<String> started = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void startExecutor() {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("import-job-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("import-job-heartbeat-"));
+        scheduler.scheduleWithFixedDelay(this::heartbeat,
+            heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::relayProgress,
+            progressInterval.toMillis(), progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrupts the running jobs, which fail themselves on their worker, and fails the queued
+     * ones. A job whose worker does not stop within trades.import.jobs.shutdown-timeout is left
+     * to it, and reported failed once its heartbeat is older than trades.import.jobs.stale-after.
+     */
+    @PreDestroy
+    void stopExecutor() throws InterruptedException {
+        scheduler.shutdownNow();
+        // Drains the queue, so no job starts from here on
+        executor.shutdownNow();
+        boolean stopped = executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        for (ImportJob job : active.values()) {
+            if (!started.contains(job.getId())) {
+                fail(job, SHUTDOWN_MESSAGE);
+            }
+        }
+        if (!stopped) {
+            logger.warn("Import jobs {} did not stop in time, they will be reported failed once their heartbeat is stale",
+                started);
+        }
+    }
+
+    /**
+     * Queues the import of an uploaded broker export.
+     * @return The queued job
+     * @throws RejectedExecutionException If trades.import.jobs.queue-capacity jobs are already waiting
+     */
+    public ImportJob submit(MultipartFile file, String userId) throws IOException {
+        // The multipart upload is deleted when the request ends
+        Path upload = Files.createTempFile("trade-import-", ".csv");
+        try {
+            file.transferTo(upload);
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), userId, file.getOriginalFilename());
+            mongoTemplate.insert(job);
+            active.put(job.getId(), job);
+            try {
+                executor.execute(() -> run(job, upload));
+            } catch (RejectedExecutionException e) {
+                active.remove(job.getId());
+                mongoTemplate.remove(job);
+                throw e;
+            }
+            logger.info("Queued import job {} of file {} for user {}", job.getId(), job.getFileName(), userId);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the job, failed if the node running it stopped, or null if there is no such job.
+     */
+    public ImportJob getJob(String jobId) {
+        // Read back rather than shared with the worker updating it; at most a progress interval behind
+        ImportJob job = mongoTemplate.findById(jobId, ImportJob.class);
+        if (job != null && !job.getStatus().isFinished()
+                && job.getHeartbeatAt().getTime() < System.currentTimeMillis() - staleAfter.toMillis()) {
+            Date heartbeatAt = job.getHeartbeatAt();
+            applyFailure(job, "Import was interrupted as the server running it stopped");
+            // Only if the job is still as read, so a late heartbeat of its node wins
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(jobId).and("heartbeatAt").is(heartbeatAt)),
+                new Update().set("status", job.getStatus()).set("errors", job.getErrors())
+                    .set("finishedAt", job.getFinishedAt()).set("expiresAt", job.getExpiresAt()),
+                ImportJob.class);
+        }
+        return job;
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of "progress" events for the job, starting with its
+     * current state and completed after the event that reports it finished.
+     * @param userId The user asking, who must be the one the job imports trades for
+     * @return The stream, null if there is no such job of the user
+     */
+    public SseEmitter subscribe(String jobId, String userId) {
+        ImportJob current = getJob(jobId);
+        if (current == null || !current.getUserId().equals(userId)) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        List<SseEmitter> subscribers = emitters.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        subscribers.add(emitter);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(emitter));
+
+        // Read again once subscribed, so a job that finished meanwhile is not missed
+        ImportJob job = getJob(jobId);
+        send(emitter, progressOf(job), job.getStatus().isFinished());
+        return emitter;
+    }
+
+    /**
+     * Progress of the job as reported to clients.
+     */
+    public Map<String, Object> progressOf(ImportJob job) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", job.getId());
+        progress.put("status", job.getStatus());
+        progress.put("fileName", job.getFileName());
+        progress.put("rowsParsed", job.getRowsParsed());
+        progress.put("tradesMatched", job.getTradesMatched());
+        progress.put("tradesSaved", job.getTradesSaved());
+        progress.put("tradesFailed", job.getTradesFailed());
+        progress.put("errors", List.copyOf(job.getErrors()));
+        progress.put("createdAt", job.getCreatedAt());
+        progress.put("finishedAt", job.getFinishedAt());
+        return progress;
+    }
+
+    /**
+     * Keeps the jobs of this node from being taken for lost while they wait or run.
+     */
+    void heartbeat() {
+        try {
+            if (!active.isEmpty()) {
+                mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(List.copyOf(active.keySet()))),
+                    new Update().set("heartbeatAt", new Date()), ImportJob.class);
+            }
+        } catch (Exception e) {
+            // An exception would cancel the schedule
+            logger.warn("Could not record heartbeat of import jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pushes the progress of jobs running on other nodes to the streams subscribed here.
+     */
+    void relayProgress() {
+        try {
+            relayProgressOfRemoteJobs();
+        } catch (Exception e) {
+            logger.warn("Could not relay progress of import jobs: {}", e.getMessage());
+        }
+    }
+
+    private void relayProgressOfRemoteJobs() {
+        for (String jobId : emitters.keySet()) {
+            if (active.containsKey(jobId)) {
+                continue;
+            }
+            ImportJob job = getJob(jobId);
+            if (job == null) {
+                // Expired while subscribed
+                List<SseEmitter> subscribers = emitters.remove(jobId);
+                if (subscribers != null) {
+                    subscribers.forEach(SseEmitter::complete);
+                }
+            } else {
+                publish(job);
+            }
+        }
+    }
+
+    private void run(ImportJob job, Path upload) {
+        started.add(job.getId());
+        try {
+            job.setStatus(ImportJob.Status.PARSING);
+            persist(job);
+            List<BrokerTradeRecord> records = new ArrayList<>();
+            long[] lastReport = {System.nanoTime()};
+            try (BufferedReader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8)) {
+                csvImportService.parseBrokerRecords(reader, record -> {
+                    records.add(record);
+                    job.setRowsParsed(job.getRowsParsed() + 1);
+                    if (System.nanoTime() - lastReport[0] >= progressInterval.toNanos()) {
+                        lastReport[0] = System.nanoTime();
+                        persist(job);
+                    }
+                });
+            }
+
+            stopIfShuttingDown();
+            job.setStatus(ImportJob.Status.MATCHING);
+            persist(job);
+            List<Trade> trades = csvImportService.processBrokerRecords(records, job.getUserId());
+            records.clear();
+            trades.forEach(trade -> trade.setUserId(job.getUserId()));
+            job.setTradesMatched(trades.size());
+
+            stopIfShuttingDown();
+            job.setStatus(ImportJob.Status.SAVING);
+            persist(job);
+            for (int start = 0; start < trades.size(); start += saveBatchSize) {
+                stopIfShuttingDown();
+                BulkImportResult result = tradeService.bulkInsert(
+                    trades.subList(start, Math.min(start + saveBatchSize, trades.size())));
+                job.setTradesSaved(job.getTradesSaved() + result.getSaved().size());
+                job.setTradesFailed(job.getTradesFailed() + result.getFailures().size());
+                for (BulkImportResult.Failure failure : result.getFailures()) {
+                    addError(job, "Error saving trade for symbol " + failure.getSymbol() + ": " + failure.getMessage());
+                }
+                persist(job);
+            }
+
+            if (job.getTradesSaved() == 0) {
+                fail(job, "No trades were saved to the database");
+            } else {
+                job.setStatus(ImportJob.Status.COMPLETED);
+                finish(job);
+                logger.info("Import job {} saved {} of {} trades from file {}",
+                    job.getId(), job.getTradesSaved(), job.getTradesMatched(), job.getFileName());
+            }
+        } catch (CsvImportException e) {
+            logger.error("CSV import error in job {} for file {}: {}", job.getId(), job.getFileName(), e.getMessage());
+            fail(job, e.getMessage());
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                // Interrupted by stopExecutor, e.g. while reading the upload
+                logger.warn("Import job {} was interrupted by a server shutdown", job.getId());
+                fail(job, SHUTDOWN_MESSAGE);
+            } else {
+                logger.error("Unexpected error in import job {}: ", job.getId(), e);
+                fail(job, "Failed to process file: " + e.getMessage());
+            }
+        } finally {
+            started.remove(job.getId());
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                logger.warn("Could not delete upload {} of import job {}: {}", upload, job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    // Ends the job between its steps once the server is stopping; batches already saved stay saved
+    private void stopIfShuttingDown() throws InterruptedException {
+        if (executor.isShutdown()) {
+            throw new InterruptedException("Server shutdown");
+        }
+    }
+
+    private void fail(ImportJob job, String message) {
+        applyFailure(job, message);
+        finish(job);
+    }
+
+    private void applyFailure(ImportJob job, String message) {
+        job.setStatus(ImportJob.Status.FAILED);
+        addError(job, message);
+        job.setFinishedAt(new Date());
+        job.setExpiresAt(new Date(job.getFinishedAt().getTime() + retention.toMillis()));
+    }
+
+    private void finish(ImportJob job) {
+        if (job.getFinishedAt() == null) {
+            job.setFinishedAt(new Date());
+            job.setExpiresAt(new Date(job.getFinishedAt().getTime() + retention.toMillis()));
+        }
+        try {
+            persist(job);
+        } finally {
+            active.remove(job.getId());
+        }
+    }
+
+    private void addError(ImportJob job, String message) {
+        if (job.getErrors().size() < maxErrors) {
+            job.getErrors().add(message);
+        }
+    }
+
+    // Writes the job's state and pushes it to the subscribed streams
+    private void persist(ImportJob job) {
+        job.setHeartbeatAt(new Date());
+        try {
+            mongoTemplate.save(job);
+        } catch (Exception e) {
+            // The next write catches up; only a final state that failed to save is lost
+            logger.warn("Could not save progress of import job {}: {}", job.getId(), e.getMessage());
+        }
+        publish(job);
+    }
+
+    private void publish(ImportJob job) {
+        List<SseEmitter> subscribers = emitters.get(job.getId());
+        if (subscribers == null) {
+            return;
+        }
+        boolean finished = job.getStatus().isFinished();
+        Map<String, Object> progress = progressOf(job);
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, progress, finished);
+        }
+        if (finished) {
+            emitters.remove(job.getId());
+        }
+    }
+
+    private static void send(SseEmitter emitter, Map<String, Object> progress, boolean last) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(progress));
+            if (last) {
+                emitter.complete();
+            }
+        } catch (Exception e) {
+            // The client went away
+            emitter.completeWithError(e);
+        }
+    }
+}
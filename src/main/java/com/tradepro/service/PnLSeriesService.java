@@ -0,0 +1,182 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Exit;
+import com.tradepro.model.PnLBucket;
+import com.tradepro.model.TradeArchiveBucket;
+import com.tradepro.model.TradeOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Stores each user's realized P/L as pre-aggregated day, week and month buckets.
+ * A closed trade contributes its total profit to the bucket of its last exit date, the same
+ * attribution the P/L chart has always used. Consistency with the trades is owned by
+ * {@link UserAnalyticsService}, which calls in here under its per-user lock.
+ */
+@Service
+public class PnLSeriesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PnLSeriesService.class);
+    private static final List<String> GRANULARITIES = List.of(PnLBucket.DAY, PnLBucket.WEEK, PnLBucket.MONTH);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Returns the non-empty buckets of one granularity whose start date lies in [from, to].
+     */
+    public List<PnLBucket> getSeries(String userId, String granularity, LocalDate from, LocalDate to) {
+        String fromId = PnLBucket.idOf(userId, granularity, bucketStart(from, granularity).toString());
+        String toId = PnLBucket.idOf(userId, granularity, to.toString());
+        Query query = new Query(Criteria.where("_id").gte(fromId).lte(toId).and("tradeCount").gt(0))
+            .with(Sort.by(Sort.Direction.ASC, "_id"));
+        return mongoTemplate.find(query, PnLBucket.class);
+    }
+
+    /**
+     * Returns every non-empty bucket of one granularity in date order.
+     */
+    public List<PnLBucket> getSeries(String userId, String granularity) {
+        String prefix = PnLBucket.idOf(userId, granularity, "");
+        Query query = new Query(Criteria.where("_id").gte(prefix).lt(prefix + Character.MAX_VALUE).and("tradeCount").gt(0))
+            .with(Sort.by(Sort.Direction.ASC, "_id"));
+        return mongoTemplate.find(query, PnLBucket.class);
+    }
+
+    /**
+     * Picks the coarsest granularity that still shows enough points for the range,
+     * keeping long ranges to a bounded number of buckets.
+     */
+    public static String autoGranularity(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (days <= 92) {
+            return PnLBucket.DAY;
+        }
+        return days <= 2 * 366 ? PnLBucket.WEEK : PnLBucket.MONTH;
+    }
+
+    /**
+     * Moves a trade's contribution from its old bucket to its new one.
+     */
+    void apply(String userId, TradeOutcome before, TradeOutcome after) {
+        LocalDate oldDay = contributionDay(before);
+        LocalDate newDay = contributionDay(after);
+        double oldPnl = oldDay != null ? before.getTotalProfit() : 0.0;
+        double newPnl = newDay != null ? after.getTotalProfit() : 0.0;
+        if (Objects.equals(oldDay, newDay) && oldPnl == newPnl) {
+            return;
+        }
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PnLBucket.class);
+        if (oldDay != null) {
+            addIncrements(ops, userId, oldDay, -oldPnl, -1);
+        }
+        if (newDay != null) {
+            addIncrements(ops, userId, newDay, newPnl, 1);
+        }
+        ops.execute();
+    }
+
+    /**
+     * Replaces the user's whole series with one computed from the given trades and the day
+     * totals of the archived ones.
+     */
+    void rebuild(String userId, List<? extends TradeOutcome> trades, List<TradeArchiveBucket> archived) {
+        Map<String, PnLBucket> buckets = new HashMap<>();
+        for (TradeOutcome trade : trades) {
+            LocalDate day = contributionDay(trade);
+            if (day != null) {
+                addToBuckets(buckets, userId, day, trade.getTotalProfit(), 1);
+            }
+        }
+        for (TradeArchiveBucket archive : archived) {
+            for (TradeArchiveBucket.DayPnL day : archive.getSummary().getDays()) {
+                addToBuckets(buckets, userId, LocalDate.ofEpochDay(day.getDay()), day.getPnl(), day.getTradeCount());
+            }
+        }
+
+        // Buckets are overwritten in place rather than dropped and re-inserted, so a reader or an
+        // increment never finds the series missing and rebuilds on two nodes cannot collide on an id
+        if (!buckets.isEmpty()) {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PnLBucket.class);
+            for (PnLBucket bucket : buckets.values()) {
+                Update update = new Update()
+                    .set("pnl", bucket.getPnl())
+                    .set("tradeCount", bucket.getTradeCount())
+                    .set("userId", userId)
+                    .set("granularity", bucket.getGranularity())
+                    .set("bucket", bucket.getBucket());
+                ops.upsert(new Query(Criteria.where("_id").is(bucket.getId())), update);
+            }
+            ops.execute();
+        }
+
+        // Only the buckets no longer in the series are deleted, found by the user's _id prefix
+        String prefix = PnLBucket.idPrefixOf(userId);
+        mongoTemplate.remove(new Query(Criteria.where("_id").gte(prefix).lt(prefix + Character.MAX_VALUE)
+            .nin(buckets.keySet())), PnLBucket.class);
+        logger.debug("Rebuilt P/L series for user {} with {} buckets", userId, buckets.size());
+    }
+
+    private static void addToBuckets(Map<String, PnLBucket> buckets, String userId, LocalDate day, double pnl, int count) {
+        for (String granularity : GRANULARITIES) {
+            String start = bucketStart(day, granularity).toString();
+            PnLBucket bucket = buckets.computeIfAbsent(PnLBucket.idOf(userId, granularity, start),
+                id -> new PnLBucket(userId, granularity, start));
+            bucket.setPnl(bucket.getPnl() + pnl);
+            bucket.setTradeCount(bucket.getTradeCount() + count);
+        }
+    }
+
+    private void addIncrements(BulkOperations ops, String userId, LocalDate day, double pnl, int count) {
+        for (String granularity : GRANULARITIES) {
+            String start = bucketStart(day, granularity).toString();
+            Query query = new Query(Criteria.where("_id").is(PnLBucket.idOf(userId, granularity, start)));
+            Update update = new Update()
+                .inc("pnl", pnl)
+                .inc("tradeCount", count)
+                .setOnInsert("userId", userId)
+                .setOnInsert("granularity", granularity)
+                .setOnInsert("bucket", start);
+            ops.upsert(query, update);
+        }
+    }
+
+    static LocalDate bucketStart(LocalDate day, String granularity) {
+        return switch (granularity) {
+            case PnLBucket.WEEK -> day.with(DayOfWeek.MONDAY);
+            case PnLBucket.MONTH -> day.withDayOfMonth(1);
+            default -> day;
+        };
+    }
+
+    // Day a closed trade's P/L is attributed to: the date of its last exit
+    private static LocalDate contributionDay(TradeOutcome trade) {
+        if (trade == null
+                || !("CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus()))
+                || trade.getTotalProfit() == null
+                || trade.getExits() == null || trade.getExits().isEmpty()) {
+            return null;
+        }
+        Exit lastExit = trade.getExits().get(trade.getExits().size() - 1);
+        Integer exitDay = lastExit.getExitDay();
+        if (exitDay == null) {
+            logger.warn("Skipping trade {} with unparseable exit date {}", trade.getId(), lastExit.getExitDate());
+            return null;
+        }
+        return LocalDate.ofEpochDay(exitDay);
+    }
+}
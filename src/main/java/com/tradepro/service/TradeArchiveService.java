@@ -0,0 +1,209 @@
+package com.tradepro.service;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeArchiveBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the {@link TradeArchiveBucket}s of the trades_archive collection, where
+ * {@link TradeTieringService} moves old closed trades. Summaries are read without the trades
+ * they were computed from; buckets are rewritten whole under their version.
+ */
+@Service
+public class TradeArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeArchiveService.class);
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${trades.archive.max-trades-per-bucket:200}")
+    private int maxTradesPerBucket;
+
+    /**
+     * Returns the user's buckets in month order with only their summaries loaded.
+     */
+    public List<TradeArchiveBucket> getSummaries(String userId) {
+        return mongoTemplate.find(summariesQuery(userId), TradeArchiveBucket.class);
+    }
+
+    /**
+     * As {@link #getSummaries(String)}, read from the given members.
+     */
+    public List<TradeArchiveBucket> getSummaries(String userId, ReadPreference readPreference) {
+        return mongoTemplate.find(summariesQuery(userId).withReadPreference(readPreference), TradeArchiveBucket.class);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getSummaries(String, ReadPreference)}.
+     */
+    public Flux<TradeArchiveBucket> getSummariesReactive(String userId, ReadPreference readPreference) {
+        return reactiveMongoTemplate.find(summariesQuery(userId).withReadPreference(readPreference), TradeArchiveBucket.class);
+    }
+
+    /**
+     * Returns the user's archived trades whose last exit was in the given month (yyyy-MM).
+     */
+    public List<Trade> getTrades(String userId, String month) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("month").is(month));
+        query.fields().include("trades");
+        return mongoTemplate.find(query, TradeArchiveBucket.class).stream()
+            .flatMap(bucket -> bucket.getTrades().stream())
+            .toList();
+    }
+
+    /**
+     * Returns the user's archived trades entered within [from, to] in the order of the trade
+     * listings, {@link TradeService#LISTING_ORDER}. Either bound may be null; trades whose entry
+     * date cannot be parsed are only returned without bounds.
+     */
+    public List<Trade> findTrades(String userId, LocalDate from, LocalDate to) {
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        query.fields().include("trades");
+        return mongoTemplate.find(query, TradeArchiveBucket.class).stream()
+            .flatMap(bucket -> bucket.getTrades().stream())
+            .filter(trade -> enteredWithin(trade, from, to))
+            .sorted(TradeService.LISTING_ORDER)
+            .toList();
+    }
+
+    /**
+     * Returns an archived trade, null if no bucket holds a trade with the id.
+     */
+    public Trade findTrade(String tradeId) {
+        TradeArchiveBucket bucket = findBucket(tradeId);
+        return bucket != null ? tradeOf(bucket, tradeId) : null;
+    }
+
+    public boolean isArchived(String tradeId) {
+        return mongoTemplate.exists(Query.query(Criteria.where("tradeIds").is(tradeId)), TradeArchiveBucket.class);
+    }
+
+    /**
+     * Returns which of the given trade ids are archived.
+     */
+    public List<String> findArchivedIds(Collection<String> tradeIds) {
+        Query query = Query.query(Criteria.where("tradeIds").in(tradeIds));
+        query.fields().include("tradeIds");
+        return mongoTemplate.find(query, TradeArchiveBucket.class).stream()
+            .flatMap(bucket -> bucket.getTradeIds().stream())
+            .filter(tradeIds::contains)
+            .toList();
+    }
+
+    /**
+     * Adds trades of one user whose last exit falls in the same month to a bucket of that month
+     * with room for them, starting a new bucket when none has.
+     */
+    void add(String userId, String month, List<Trade> trades) {
+        for (int from = 0; from < trades.size(); from += maxTradesPerBucket) {
+            addToBucket(userId, month, trades.subList(from, Math.min(from + maxTradesPerBucket, trades.size())));
+        }
+    }
+
+    private void addToBucket(String userId, String month, List<Trade> trades) {
+        for (int attempt = 1; ; attempt++) {
+            Query query = Query.query(Criteria.where("userId").is(userId).and("month").is(month)
+                .and("count").lte(maxTradesPerBucket - trades.size()));
+            TradeArchiveBucket bucket = mongoTemplate.findOne(query, TradeArchiveBucket.class);
+            if (bucket == null) {
+                bucket = new TradeArchiveBucket(userId, month);
+            }
+            bucket.getTrades().addAll(trades);
+            bucket.summarize();
+            try {
+                mongoTemplate.save(bucket);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Archive bucket of user {} for {} changed meanwhile, retrying", userId, month);
+            }
+        }
+    }
+
+    /**
+     * Takes trades out of the archive, dropping buckets that end up empty.
+     * @return The trades removed
+     */
+    List<Trade> remove(Collection<String> tradeIds) {
+        List<Trade> removed = new ArrayList<>();
+        for (String tradeId : tradeIds) {
+            for (int attempt = 1; ; attempt++) {
+                TradeArchiveBucket bucket = findBucket(tradeId);
+                if (bucket == null) {
+                    break;
+                }
+                Trade trade = tradeOf(bucket, tradeId);
+                bucket.getTrades().remove(trade);
+                bucket.summarize();
+                try {
+                    if (bucket.getTrades().isEmpty()) {
+                        if (mongoTemplate.remove(Query.query(Criteria.where("_id").is(bucket.getId())
+                                .and("version").is(bucket.getVersion())), TradeArchiveBucket.class).getDeletedCount() == 0) {
+                            throw new OptimisticLockingFailureException("Archive bucket " + bucket.getId() + " changed");
+                        }
+                    } else {
+                        mongoTemplate.save(bucket);
+                    }
+                    removed.add(trade);
+                    break;
+                } catch (OptimisticLockingFailureException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    private TradeArchiveBucket findBucket(String tradeId) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("tradeIds").is(tradeId)), TradeArchiveBucket.class);
+    }
+
+    private static Trade tradeOf(TradeArchiveBucket bucket, String tradeId) {
+        return bucket.getTrades().stream()
+            .filter(trade -> tradeId.equals(trade.getId()))
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static boolean enteredWithin(Trade trade, LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        Integer entryDay = trade.getEntryDay();
+        return entryDay != null
+            && (from == null || entryDay >= from.toEpochDay())
+            && (to == null || entryDay <= to.toEpochDay());
+    }
+
+    private static Query summariesQuery(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId)).with(Sort.by("month"));
+        query.fields().exclude("trades", "tradeIds");
+        return query;
+    }
+}
@@ -0,0 +1,153 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Exit;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeDates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online migration that writes the typed date fields onto trades stored before they existed.
+ * Trades are rewritten in small batches with targeted $set updates, so the application keeps
+ * serving requests meanwhile; until a trade is migrated its typed dates are parsed on read.
+ * Every save also writes the typed dates, so once no unmigrated trade is left the job stops.
+ * Batches walk the trades in _id order from where the previous one stopped, so the collection is
+ * read once in total, and run on their own thread rather than the shared @Scheduled one.
+ */
+@Service
+public class TradeDateMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeDateMigrationService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${trades.date-migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${trades.date-migration.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${trades.date-migration.initial-delay-ms:60000}")
+    private long initialDelayMs;
+
+    @Value("${trades.date-migration.interval-ms:300000}")
+    private long intervalMs;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean complete;
+
+    // _id of the last trade read; only touched from the migration thread
+    private String lastSeenId;
+
+    @PostConstruct
+    void startScheduler() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("trade-date-migration-"));
+        scheduler.scheduleWithFixedDelay(this::migrate, initialDelayMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void migrate() {
+        if (complete) {
+            return;
+        }
+
+        long migrated = 0;
+        try {
+            while (true) {
+                int count = migrateBatch();
+                if (count == 0) {
+                    complete = true;
+                    logger.info("Trade date migration complete - {} trades migrated in this run", migrated);
+                    return;
+                }
+                migrated += count;
+                logger.info("Migrated typed dates of {} trades ({} in this run)", count, migrated);
+                Thread.sleep(batchPauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Left incomplete, so the next run picks up after the last trade read
+            logger.error("Trade date migration stopped after {} trades: {}", migrated, e.getMessage());
+        }
+    }
+
+    /**
+     * Migrates the next batch of trades after the last one read.
+     * @return Number of trades read for migration, 0 when none is left
+     */
+    int migrateBatch() {
+        Criteria criteria = unmigrated();
+        if (lastSeenId != null) {
+            // Range operators are not mapped to ObjectId like equality is
+            criteria = criteria.and("_id").gt(ObjectId.isValid(lastSeenId) ? new ObjectId(lastSeenId) : lastSeenId);
+        }
+        // Walks the _id index, so migrated trades before lastSeenId are not scanned again
+        Query query = Query.query(criteria).with(Sort.by("_id")).limit(batchSize);
+        query.fields().include("entryDate", "exitDate", "expirationDate", "exits.exitDate");
+        List<Trade> batch = mongoTemplate.find(query, Trade.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        lastSeenId = batch.get(batch.size() - 1).getId();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trade.class);
+        for (Trade trade : batch) {
+            Update update = new Update().set("typedDatesVersion", Trade.TYPED_DATES_VERSION);
+            setDay(update, "entryDay", trade.getEntryDate());
+            setDay(update, "exitDay", trade.getExitDate());
+            setDay(update, "expirationDay", trade.getExpirationDate());
+            List<Exit> exits = trade.getExits();
+            if (exits != null) {
+                for (int i = 0; i < exits.size(); i++) {
+                    setDay(update, "exits." + i + ".exitDay", exits.get(i).getExitDate());
+                }
+            }
+            // A trade saved since it was read already carries typed dates and must not be overwritten
+            bulk.updateOne(Query.query(Criteria.where("_id").is(trade.getId()).andOperator(unmigrated())), update);
+        }
+        bulk.execute();
+        return batch.size();
+    }
+
+    private static Criteria unmigrated() {
+        return Criteria.where("typedDatesVersion").ne(Trade.TYPED_DATES_VERSION);
+    }
+
+    private static void setDay(Update update, String field, String date) {
+        Integer day = TradeDates.toEpochDay(date);
+        if (day != null) {
+            update.set(field, day);
+        } else {
+            update.unset(field);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.tradepro.service;
+
+import com.mongodb.ReadPreference;
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.dto.StrategyPnL;
+import com.tradepro.model.PnLBucket;
+import com.tradepro.model.TradeArchiveBucket;
+import com.tradepro.model.UserAnalytics;
+import com.tradepro.repository.ReactiveTradeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the trade metrics shown on the dashboard, both for the individual endpoints
+ * and for the combined /api/trades/dashboard response.
+ */
+@Service
+public class TradeMetricsService {
+
+    public static final String COUNT = "count";
+    public static final String PNL_CHART = "pnlChart";
+    public static final String STRATEGY_PNL = "strategyPnl";
+    public static final String YEARLY_PNL = "yearlyPnl";
+    public static final String PROFIT_METRICS = "profitMetrics";
+    public static final String DURATION_METRICS = "durationMetrics";
+
+    public static final List<String> SECTIONS = List.of(
+        COUNT, PNL_CHART, STRATEGY_PNL, YEARLY_PNL, PROFIT_METRICS, DURATION_METRICS);
+
+    @Autowired
+    private UserAnalyticsService userAnalyticsService;
+
+    @Autowired
+    private PnLSeriesService pnlSeriesService;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private EquityCurveService equityCurveService;
+
+    @Autowired
+    private UserTradeColumnsService userTradeColumnsService;
+
+    @Autowired
+    private AnalyticsReadRouting analyticsReadRouting;
+
+    @Autowired
+    private ReactiveTradeRepository reactiveTradeRepository;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    /**
+     * Computes the requested dashboard sections. The analytics snapshot is read once for all
+     * sections, and the trade columns are loaded only if the duration metrics are requested.
+     */
+    public Map<String, Object> getDashboard(String userId, Collection<String> sections,
+                                            String timeFrame, String granularity, int year) {
+        UserAnalytics analytics = userAnalyticsService.getSnapshot(userId);
+
+        Map<String, Object> dashboard = new LinkedHashMap<>();
+        for (String section : sections) {
+            switch (section) {
+                case COUNT -> dashboard.put(section, getCounts(analytics));
+                case PNL_CHART -> dashboard.put(section, getPnLChart(analytics, timeFrame, granularity));
+                case STRATEGY_PNL -> dashboard.put(section, getStrategyPnL(analytics));
+                case YEARLY_PNL -> dashboard.put(section, getYearlyPnL(analytics, year));
+                case PROFIT_METRICS -> dashboard.put(section, getProfitMetrics(analytics));
+                case DURATION_METRICS -> dashboard.put(section, getDurationMetrics(
+                    userTradeColumnsService.getColumns(userId), tradeArchiveService.getSummaries(userId)));
+                default -> throw new IllegalArgumentException("Unknown dashboard section: " + section);
+            }
+        }
+        return dashboard;
+    }
+
+    public Map<String, Object> getCounts(UserAnalytics analytics) {
+        return TradeStatsAccumulator.from(analytics).toResponse();
+    }
+
+    /**
+     * Returns the P/L chart points of a time frame (1W, 1M, 3M, 6M, YTD, ALL).
+     * @param granularity DAY, WEEK, MONTH or AUTO
+     * @throws IllegalArgumentException if the granularity is not supported
+     */
+    public List<Map<String, Object>> getPnLChart(UserAnalytics analytics, String timeFrame, String granularity) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = switch (timeFrame) {
+            case "1W" -> endDate.minusWeeks(1);
+            case "1M" -> endDate.minusMonths(1);
+            case "3M" -> endDate.minusMonths(3);
+            case "6M" -> endDate.minusMonths(6);
+            case "YTD" -> LocalDate.of(endDate.getYear(), 1, 1); // Start from January 1st of current year
+            default -> LocalDate.parse("2000-01-01"); // For "ALL" time frame
+        };
+
+        String bucketSize = granularity.toUpperCase();
+        if ("AUTO".equals(bucketSize)) {
+            bucketSize = PnLSeriesService.autoGranularity(startDate, endDate);
+        } else if (!List.of(PnLBucket.DAY, PnLBucket.WEEK, PnLBucket.MONTH).contains(bucketSize)) {
+            throw new IllegalArgumentException("Unsupported granularity: " + granularity);
+        }
+
+        // A current snapshot implies a complete P/L series, so the buckets can be read directly
+        return pnlSeriesService.getSeries(analytics.getUserId(), bucketSize, startDate, endDate).stream()
+            .map(bucket -> {
+                Map<String, Object> point = new HashMap<>();
+                point.put("date", bucket.getBucket());
+                point.put("pnl", bucket.getPnl());
+                return point;
+            })
+            .collect(Collectors.toList());
+    }
+
+    public List<Map<String, Object>> getStrategyPnL(UserAnalytics analytics) {
+        return analytics.getStrategies().stream()
+            .filter(row -> row.getProfitCount() > 0)
+            .sorted(Comparator.comparingDouble(StrategyPnL::getTotalPnL).reversed())
+            .map(row -> {
+                long totalTrades = row.getTradeCount();
+                double totalPnL = row.getTotalPnL();
+                double winRatio = totalTrades > 0 ? (double) row.getWinningTrades() / totalTrades : 0;
+
+                Map<String, Object> metrics = new HashMap<>();
+                metrics.put("strategy", row.getStrategy());
+                metrics.put("totalPnL", totalPnL);
+                metrics.put("tradeCount", totalTrades);
+                metrics.put("winRatio", winRatio);
+                metrics.put("avgPnL", totalTrades > 0 ? totalPnL / totalTrades : 0);
+                return metrics;
+            })
+            .collect(Collectors.toList());
+    }
+
+    public Map<String, Object> getYearlyPnL(UserAnalytics analytics, int year) {
+        // Exit profits are bucketed by the year of each exit in the analytics snapshot
+        UserAnalytics.YearBucket bucket = analytics.getYear(year);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("year", year);
+        response.put("totalPnL", bucket != null ? bucket.getTotalPnL() : 0.0);
+        return response;
+    }
+
+    public Map<String, Object> getProfitMetrics(UserAnalytics analytics) {
+        long closedTrades = analytics.getClosedTrades();
+        double grossProfits = analytics.getGrossProfits();
+        double grossLosses = analytics.getGrossLosses();
+
+        // Calculate profit factor
+        double profitFactor = grossLosses > 0 ? grossProfits / grossLosses : grossProfits;
+
+        // Maximum drawdown of the equity curve ordered by last exit date
+        double maxDrawdown = analytics.getMaxDrawdown();
+
+        // Calculate Trading Consistency Score (0-100)
+        double winRatio = analytics.getWinningTrades() / (double) closedTrades;
+
+        // Calculate trade frequency score (more regular trading = higher score)
+        double tradeFrequencyScore = Math.min(closedTrades / 20.0, 1.0); // Normalize to max 1.0
+
+        // Combine factors for consistency score
+        double consistencyScore = (
+            (winRatio * 40) +                    // Win ratio contributes 40%
+            (profitFactor / 3.0 * 30) +          // Profit factor contributes 30% (normalized to max ~3.0)
+            (tradeFrequencyScore * 30)           // Trade frequency contributes 30%
+        );
+
+        // Ensure score is between 0 and 100
+        consistencyScore = Math.min(Math.max(consistencyScore, 0), 100);
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("profitFactor", profitFactor);
+        metrics.put("grossProfits", grossProfits);
+        metrics.put("grossLosses", grossLosses);
+        metrics.put("maxDrawdown", maxDrawdown);
+        metrics.put("consistencyScore", consistencyScore);
+        return metrics;
+    }
+
+    /**
+     * Lists the hold time of every closed trade still in the trades collection; the average
+     * duration also covers the archived trades, from their summaries.
+     */
+    public Map<String, Object> getDurationMetrics(UserTradeColumns columns, List<TradeArchiveBucket> archived) {
+        List<Map<String, Object>> tradeDurations = new ArrayList<>();
+        long totalDaysHeld = 0;
+
+        // Closed trades with an entry date and at least one exit
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.isClosedAt(i)
+                    || columns.entryDayAt(i) == UserTradeColumns.NO_DATE
+                    || columns.exitDayAt(i) == UserTradeColumns.NO_DATE) {
+                continue;
+            }
+            long daysHeld = columns.exitDayAt(i) - columns.entryDayAt(i);
+            totalDaysHeld += daysHeld;
+
+            Map<String, Object> tradeInfo = new HashMap<>();
+            tradeInfo.put("tradeId", columns.idAt(i));
+            tradeInfo.put("symbol", columns.symbol(columns.symbolIdAt(i)));
+            tradeInfo.put("daysHeld", daysHeld);
+            tradeInfo.put("entryDate", LocalDate.ofEpochDay(columns.entryDayAt(i)));
+            tradeInfo.put("exitDate", LocalDate.ofEpochDay(columns.exitDayAt(i)));
+            tradeDurations.add(tradeInfo);
+        }
+
+        long archivedTrades = 0;
+        for (TradeArchiveBucket bucket : archived) {
+            archivedTrades += bucket.getSummary().getDurationCount();
+            totalDaysHeld += bucket.getSummary().getDurationDays();
+        }
+
+        // Calculate average duration
+        long tradeCount = tradeDurations.size() + archivedTrades;
+        double averageDuration = tradeCount == 0 ? 0.0 : (double) totalDaysHeld / tradeCount;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("averageDuration", averageDuration);
+        response.put("archivedTrades", archivedTrades);
+        response.put("tradeDurations", tradeDurations);
+        return response;
+    }
+
+    /**
+     * Returns the equity curve points and drawdown statistics of [from, to] (yyyy-MM-dd).
+     * The range starts at the beginning of the curve and ends today when the bounds are omitted.
+     */
+    public Map<String, Object> getEquityCurve(String userId, String from, String to) {
+        EquityCurve curve = equityCurveService.getCurve(userId);
+        long toDay = to != null ? LocalDate.parse(to).toEpochDay() : LocalDate.now().toEpochDay();
+        long fromDay = from != null ? LocalDate.parse(from).toEpochDay()
+            : (curve.size() > 0 ? Math.min(curve.dayAt(0), toDay) : toDay);
+
+        EquityCurve.Drawdown drawdown = curve.drawdown(fromDay, toDay);
+
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (int i = curve.firstIndexFrom(fromDay), end = curve.lastIndexTo(toDay); i <= end; i++) {
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", LocalDate.ofEpochDay(curve.dayAt(i)).toString());
+            point.put("equity", curve.equityAt(i));
+            points.add(point);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("from", LocalDate.ofEpochDay(fromDay).toString());
+        response.put("to", LocalDate.ofEpochDay(toDay).toString());
+        response.put("startEquity", drawdown.startEquity());
+        response.put("endEquity", drawdown.endEquity());
+        response.put("runningPeak", drawdown.runningPeak());
+        response.put("periodPeak", drawdown.periodPeak());
+        response.put("maxDrawdown", drawdown.maxDrawdown());
+        response.put("currentDrawdown", drawdown.currentDrawdown());
+        response.put("maxDrawdownDuration", drawdown.maxDrawdownDuration());
+        response.put("currentDrawdownDuration", drawdown.currentDrawdownDuration());
+        response.put("points", points);
+        return response;
+    }
+
+    /**
+     * Returns realized P/L per year, quarter and month. Monthly sums come from a single
+     * aggregation over the trades plus the summaries of the archived ones, read from a secondary
+     * when the user's data allows it; quarters and years are rolled up from them in one pass.
+     */
+    public Map<String, Object> getPnLByPeriod(String userId) {
+        ReadPreference readPreference = analyticsReadRouting.forUser(userId);
+        return rollUpPnLByPeriod(withArchived(tradeService.getMonthlyExitPnL(userId, readPreference),
+            tradeArchiveService.getSummaries(userId, readPreference)));
+    }
+
+    /**
+     * Non-blocking variant of {@link #getPnLByPeriod}, run on the reactive driver.
+     */
+    public Mono<Map<String, Object>> getPnLByPeriodReactive(String userId) {
+        return analyticsReadRouting.forUserReactive(userId)
+            .flatMap(readPreference -> Mono.zip(
+                reactiveTradeRepository.aggregateMonthlyExitPnL(userId, readPreference).collectList(),
+                tradeArchiveService.getSummariesReactive(userId, readPreference).collectList()))
+            .map(monthly -> rollUpPnLByPeriod(withArchived(monthly.getT1(), monthly.getT2())));
+    }
+
+    /**
+     * Non-blocking variant of {@link #getDurationMetrics}, folding the trades into columns as they arrive.
+     */
+    public Mono<Map<String, Object>> getDurationMetricsReactive(String userId) {
+        return Mono.zip(
+                userTradeColumnsService.getColumnsReactive(userId),
+                tradeArchiveService.getSummariesReactive(userId, ReadPreference.primary()).collectList())
+            .map(columns -> getDurationMetrics(columns.getT1(), columns.getT2()));
+    }
+
+    // Adds the archived exits to the monthly rows, keeping them in chronological order
+    private static List<PeriodPnL> withArchived(List<PeriodPnL> monthlyPnL, List<TradeArchiveBucket> archived) {
+        if (archived.isEmpty()) {
+            return monthlyPnL;
+        }
+        TreeMap<Integer, PeriodPnL> months = new TreeMap<>();
+        List<PeriodPnL> archivedMonths = archived.stream()
+            .flatMap(bucket -> bucket.getSummary().getExitMonths().stream())
+            .toList();
+        for (List<PeriodPnL> rows : List.of(monthlyPnL, archivedMonths)) {
+            for (PeriodPnL row : rows) {
+                PeriodPnL month = months.computeIfAbsent(row.getYear() * 12 + row.getMonth() - 1, key -> {
+                    PeriodPnL period = new PeriodPnL();
+                    period.setYear(row.getYear());
+                    period.setMonth(row.getMonth());
+                    return period;
+                });
+                month.setTotalPnL(month.getTotalPnL() + row.getTotalPnL());
+                month.setExitCount(month.getExitCount() + row.getExitCount());
+            }
+        }
+        return new ArrayList<>(months.values());
+    }
+
+    // Monthly rows are sorted chronologically, so each year and quarter is complete before the next one starts
+    private Map<String, Object> rollUpPnLByPeriod(List<PeriodPnL> monthlyPnL) {
+        List<Map<String, Object>> years = new ArrayList<>();
+        List<Map<String, Object>> quarters = new ArrayList<>();
+        List<Map<String, Object>> months = new ArrayList<>();
+        Map<String, Object> currentYear = null;
+        Map<String, Object> currentQuarter = null;
+
+        for (PeriodPnL period : monthlyPnL) {
+            int quarter = (period.getMonth() - 1) / 3 + 1;
+
+            if (currentYear == null || !currentYear.get("year").equals(period.getYear())) {
+                currentYear = periodEntry(period.getYear());
+                years.add(currentYear);
+                currentQuarter = null;
+            }
+            if (currentQuarter == null || !currentQuarter.get("quarter").equals(quarter)) {
+                currentQuarter = periodEntry(period.getYear());
+                currentQuarter.put("quarter", quarter);
+                quarters.add(currentQuarter);
+            }
+            Map<String, Object> month = periodEntry(period.getYear());
+            month.put("month", period.getMonth());
+            months.add(month);
+
+            for (Map<String, Object> entry : List.of(currentYear, currentQuarter, month)) {
+                entry.put("totalPnL", (double) entry.get("totalPnL") + period.getTotalPnL());
+                entry.put("exitCount", (long) entry.get("exitCount") + period.getExitCount());
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("years", years);
+        response.put("quarters", quarters);
+        response.put("months", months);
+        return response;
+    }
+
+    private Map<String, Object> periodEntry(int year) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("year", year);
+        entry.put("totalPnL", 0.0);
+        entry.put("exitCount", 0L);
+        return entry;
+    }
+}
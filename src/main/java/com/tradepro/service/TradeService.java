@@ -1,40 +1,348 @@
 package com.tradepro.service;
 
+import com.tradepro.dto.BulkImportResult;
+import com.tradepro.dto.PeriodPnL;
+import com.tradepro.dto.TradePage;
 import com.tradepro.model.Trade;
 import com.tradepro.model.Exit;
 import com.tradepro.repository.TradeRepository;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class TradeService {
 
     private static final Logger logger = LoggerFactory.getLogger(TradeService.class);
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Order of the trade listings, as the trades collection sorts them: entryDate, missing ones
+     * first, then id. Both are compared as stored strings.
+     */
+    static final Comparator<Trade> LISTING_ORDER = Comparator
+        .comparing(Trade::getEntryDate, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+        .thenComparing(Trade::getId);
+
+    // Trade fields a client can select with fields=
+    private static final Set<String> SELECTABLE_FIELDS = Set.of(
+        "id", "userId", "entryDate", "exitDate", "symbol", "action", "quantity", "price", "type",
+        "optionType", "strategy", "notes", "exits", "status", "totalProfit", "totalProfitPercentage",
+        "remainingQuantity", "fullSymbol", "strikePrice", "expirationDate");
 
     @Autowired
     private TradeRepository tradeRepository;
 
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Autowired
+    @Qualifier("importMongoTemplate")
+    private MongoTemplate importMongoTemplate;
+
+    @Autowired
+    @Qualifier("tradeWriteRetryTemplate")
+    private RetryTemplate tradeWriteRetryTemplate;
+
+    @Value("${trades.bulk-import.batch-size:1000}")
+    private int bulkBatchSize;
+
+    @Autowired(required = false)
+    private List<TradeWriteListener> writeListeners = new ArrayList<>();
+
     public Trade addTrade(Trade trade) {
         try {
             logger.debug("Saving trade: {}", trade);
-            return tradeRepository.save(trade);
+            return save(trade);
         } catch (Exception e) {
             logger.error("Error saving trade: {}", e.getMessage());
             throw new RuntimeException("Failed to save trade: " + e.getMessage());
         }
     }
 
+    /**
+     * Inserts new trades with unordered bulk writes of up to trades.bulk-import.batch-size
+     * trades each, using the import write concern. A trade that fails, e.g. on a duplicate key,
+     * does not stop the others; it is reported with its index in the given list.
+     */
+    public BulkImportResult bulkInsert(List<Trade> trades) {
+        BulkImportResult result = new BulkImportResult(trades.size());
+        for (int start = 0; start < trades.size(); start += bulkBatchSize) {
+            List<Trade> batch = trades.subList(start, Math.min(start + bulkBatchSize, trades.size()));
+            // Ids and versions are assigned up front, as bulk inserts do not write them back to the trades
+            batch.forEach(trade -> {
+                trade.setId(new ObjectId().toHexString());
+                trade.setVersion(0L);
+            });
+
+            Set<Integer> failed = new HashSet<>();
+            try {
+                importMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trade.class)
+                    .insert(batch)
+                    .execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    failed.add(error.getIndex());
+                    result.getFailures().add(new BulkImportResult.Failure(start + error.getIndex(),
+                        batch.get(error.getIndex()).getSymbol(), error.getMessage()));
+                }
+            } catch (Exception e) {
+                logger.error("Bulk insert of trades {} to {} failed: {}", start, start + batch.size() - 1, e.getMessage());
+                for (int i = 0; i < batch.size(); i++) {
+                    failed.add(i);
+                    result.getFailures().add(new BulkImportResult.Failure(start + i, batch.get(i).getSymbol(), e.getMessage()));
+                }
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (!failed.contains(i)) {
+                    result.getSaved().add(batch.get(i));
+                }
+            }
+        }
+
+        logger.info("Bulk inserted {} of {} trades", result.getSaved().size(), trades.size());
+        if (!result.getSaved().isEmpty()) {
+            notifyInsertListeners(result.getSaved());
+        }
+        return result;
+    }
+
     public List<Trade> getTradesByUserId(String userId) {
         return tradeRepository.findByUserId(userId);
     }
 
+    /**
+     * Returns the user's trades entered within [from, to], archived ones included, with only the
+     * given fields loaded from the trades collection. Null fields load everything and null bounds
+     * leave the range open.
+     */
+    public List<Trade> getTradesByUserId(String userId, Collection<String> fields, LocalDate from, LocalDate to) {
+        List<Trade> trades = fields == null && from == null && to == null
+            ? tradeRepository.findByUserId(userId)
+            : tradeRepository.findByUserId(userId, fields, from, to);
+        List<Trade> archived = tradeArchiveService.findTrades(userId, from, to);
+        if (archived.isEmpty()) {
+            return trades;
+        }
+
+        // A trade being archived right now can be in both; the one in trades wins
+        List<Trade> all = new ArrayList<>(trades);
+        Set<String> ids = new HashSet<>();
+        trades.forEach(trade -> ids.add(trade.getId()));
+        archived.stream().filter(trade -> !ids.contains(trade.getId())).forEach(all::add);
+        return all;
+    }
+
+    /**
+     * Parses a comma-separated fields= parameter. The id is always included.
+     * @return The selected fields, or null if the parameter is empty
+     * @throws IllegalArgumentException if a field does not exist on a trade
+     */
+    public static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!SELECTABLE_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown trade field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns one page of the user's trades, archived ones included, in (entryDate, id) order.
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param fields Fields to load, null for all of them
+     * @param from First entry date to include, null for no lower bound
+     * @param to Last entry date to include, null for no upper bound
+     * @throws IllegalArgumentException if the limit is out of range or the cursor is malformed
+     */
+    public TradePage getTradePage(String userId, String cursor, int limit, Set<String> fields,
+                                  LocalDate from, LocalDate to) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        String afterId = null;
+        String afterEntryDate = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] key = decodeCursor(cursor);
+            afterId = key[0];
+            afterEntryDate = key.length > 1 ? key[1] : null;
+        }
+
+        // The entry date is needed for the next cursor even when the client did not select it
+        Set<String> loaded = fields;
+        if (fields != null && !fields.contains("entryDate")) {
+            loaded = new LinkedHashSet<>(fields);
+            loaded.add("entryDate");
+        }
+
+        // One extra row tells whether another page follows
+        List<Trade> hot = tradeRepository.findPageByUserId(userId, afterEntryDate, afterId, limit + 1, loaded, from, to);
+        List<Trade> archived = tradeArchiveService.findTrades(userId, from, to);
+        if (afterId != null && !archived.isEmpty()) {
+            Trade after = new Trade();
+            after.setId(afterId);
+            after.setEntryDate(afterEntryDate);
+            archived = archived.stream().filter(trade -> LISTING_ORDER.compare(trade, after) > 0).toList();
+        }
+        List<Trade> trades = new ArrayList<>(limit + 1);
+        Iterator<Trade> merged = new ListingMerge(hot.iterator(), archived.iterator());
+        while (trades.size() <= limit && merged.hasNext()) {
+            trades.add(merged.next());
+        }
+        if (trades.size() <= limit) {
+            return new TradePage(trades, null);
+        }
+        List<Trade> items = new ArrayList<>(trades.subList(0, limit));
+        Trade last = items.get(limit - 1);
+        return new TradePage(items, encodeCursor(last.getId(), last.getEntryDate()));
+    }
+
+    /**
+     * Streams the user's trades entered within [from, to], archived ones included, in (entryDate, id)
+     * order, with only the given fields loaded if fields is not null. The caller must close the stream.
+     */
+    public Stream<Trade> streamTradesByUserId(String userId, Set<String> fields, LocalDate from, LocalDate to) {
+        List<Trade> archived = tradeArchiveService.findTrades(userId, from, to);
+        Stream<Trade> hot = tradeRepository.streamByUserId(userId, fields, from, to);
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Iterator<Trade> merged = new ListingMerge(hot.iterator(), archived.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+            .onClose(hot::close);
+    }
+
+    /**
+     * Merges trades from the trades collection and from the archive, each in {@link #LISTING_ORDER},
+     * into one sequence in that order. A trade found in both, as while it is being archived, is
+     * returned once, from the trades collection.
+     */
+    private static final class ListingMerge implements Iterator<Trade> {
+        private final Iterator<Trade> hot;
+        private final Iterator<Trade> archived;
+        private Trade nextHot;
+        private Trade nextArchived;
+
+        ListingMerge(Iterator<Trade> hot, Iterator<Trade> archived) {
+            this.hot = hot;
+            this.archived = archived;
+            nextHot = hot.hasNext() ? hot.next() : null;
+            nextArchived = archived.hasNext() ? archived.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextHot != null || nextArchived != null;
+        }
+
+        @Override
+        public Trade next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int order = nextHot == null ? 1 : nextArchived == null ? -1 : LISTING_ORDER.compare(nextHot, nextArchived);
+            if (order == 0) {
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+            Trade next;
+            if (order <= 0) {
+                next = nextHot;
+                nextHot = hot.hasNext() ? hot.next() : null;
+            } else {
+                next = nextArchived;
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+            return next;
+        }
+    }
+
+    // The cursor is the (id, entryDate) key of the last trade of a page; a null entryDate is left out
+    private static String encodeCursor(String id, String entryDate) {
+        String key = entryDate != null ? id + "\n" + entryDate : id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return key.split("\n", 2);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public List<PeriodPnL> getMonthlyExitPnL(String userId, ReadPreference readPreference) {
+        return tradeRepository.aggregateMonthlyExitPnL(userId, readPreference);
+    }
+
+    /**
+     * Applies the user-editable fields of updatedTrade to the stored trade. The save is guarded
+     * by the trade's version; if an exit or another update got in between, the edits are applied
+     * again to the current state of the trade, up to trades.write-retry.max-attempts times.
+     * @throws OptimisticLockingFailureException if every attempt ran into a concurrent write
+     */
     public Trade updateTrade(String id, Trade updatedTrade) {
+        return tradeWriteRetryTemplate.execute(context -> {
+            context.setAttribute(RetryContext.NAME, "updateTrade");
+            if (context.getRetryCount() > 0) {
+                logger.info("Trade {} changed during update, applying the update to its current state", id);
+            }
+            return applyUpdate(id, updatedTrade);
+        });
+    }
+
+    private Trade applyUpdate(String id, Trade updatedTrade) {
         Trade existingTrade = tradeRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Trade not found"));
+            .or(() -> restoreArchived(id))
+            .orElseThrow(() -> new RuntimeException("Trade not found with id: " + id));
+        if (existingTrade.getVersion() == null) {
+            // Without a version the save would be an insert; a concurrent first write makes it fail as a conflict
+            tradeRepository.initializeVersion(id);
+            existingTrade.setVersion(0L);
+        }
+        Trade before = new Trade(existingTrade);
         
         // Update fields
         existingTrade.setSymbol(updatedTrade.getSymbol());
@@ -51,43 +359,57 @@ public class TradeService {
             existingTrade.setEntryDate(updatedTrade.getEntryDate());
         }
 
-        return tradeRepository.save(existingTrade);
+        Date writeStartedAt = new Date();
+        Trade savedTrade = tradeRepository.save(existingTrade);
+        notifyWriteListeners(before, savedTrade, writeStartedAt);
+        return savedTrade;
     }
 
+    /**
+     * Records an exit in one atomic update of the stored trade, see {@link TradeRepository#pushExit}.
+     * @throws IllegalArgumentException if exitQuantity is not positive or exceeds the quantity still open
+     */
     public Trade exitTrade(String id, String exitDate, double exitPrice, int exitQuantity) {
         logger.info("Exiting trade with id: {}, exitDate: {}, exitPrice: {}, exitQuantity: {}", 
                     id, exitDate, exitPrice, exitQuantity);
-        Trade trade = tradeRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Trade not found with id: " + id));
-        
-        logger.info("Found trade: {}", trade);
-        
-        int quantity = trade.getQuantity();
-        logger.info("Remaining quantity: {}", quantity);
-        if (exitQuantity > quantity) {
-            logger.error("Exit quantity {} exceeds remaining quantity {}", exitQuantity, quantity);
+        if (exitQuantity <= 0) {
+            logger.error("Exit quantity {} of trade {} is not positive", exitQuantity, id);
+            throw new IllegalArgumentException("Exit quantity must be greater than zero");
+        }
+        Date writeStartedAt = new Date();
+        Trade before = tradeRepository.pushExit(id, exitDate, exitPrice, exitQuantity);
+        if (before == null) {
+            // Archived trades are closed, so like any closed trade they have nothing left to exit
+            if (!tradeRepository.existsById(id) && !tradeArchiveService.isArchived(id)) {
+                throw new RuntimeException("Trade not found with id: " + id);
+            }
+            logger.error("Exit quantity {} exceeds remaining quantity of trade {}", exitQuantity, id);
             throw new IllegalArgumentException("Exit quantity cannot exceed remaining quantity");
         }
-        
+
+        // The stored result is the returned state with the exit applied as the update did, saving a read
+        Trade savedTrade = new Trade(before);
+        if (savedTrade.getExits() == null) {
+            savedTrade.setExits(new ArrayList<>());
+        }
         Exit exit = new Exit();
         exit.setExitDate(exitDate);
         exit.setExitPrice(exitPrice);
         exit.setExitQuantity(exitQuantity);
         
-        double entryPrice = trade.getPrice();
+        double entryPrice = savedTrade.getPrice();
         double profit = (exitPrice - entryPrice) * exitQuantity;
-        double profitPercentage = ((exitPrice - entryPrice) / entryPrice) * 100;
+        Double profitPercentage = entryPrice != 0 ? ((exitPrice - entryPrice) / entryPrice) * 100 : null;
         
         exit.setProfit(profit);
         exit.setProfitPercentage(profitPercentage);
         
-        trade.getExits().add(exit);
+        savedTrade.getExits().add(exit);
+        updateTradeStatus(savedTrade);
+        savedTrade.setVersion(before.getVersion() != null ? before.getVersion() + 1 : 1L);
         
-        updateTradeStatus(trade);
-        
-        logger.info("Updated trade before saving: {}", trade);
-        Trade savedTrade = tradeRepository.save(trade);
         logger.info("Trade saved after exit: {}", savedTrade);
+        notifyWriteListeners(before, savedTrade, writeStartedAt);
         
         return savedTrade;
     }
@@ -98,7 +420,8 @@ public class TradeService {
         double totalProfit = trade.getExits().stream().mapToDouble(Exit::getProfit).sum();
         
         trade.setTotalProfit(totalProfit);
-        trade.setTotalProfitPercentage((totalProfit / (trade.getPrice() * trade.getQuantity())) * 100);
+        double entryValue = trade.getPrice() * trade.getQuantity();
+        trade.setTotalProfitPercentage(entryValue != 0 ? (totalProfit / entryValue) * 100 : null);
         
         int remainingQuantity = trade.getQuantity() - totalExitQuantity;
         trade.setRemainingQuantity(remainingQuantity);
@@ -115,10 +438,58 @@ public class TradeService {
 
     public Trade findById(String id) {
         return tradeRepository.findById(id)
+            .or(() -> Optional.ofNullable(tradeArchiveService.findTrade(id)))
             .orElseThrow(() -> new RuntimeException("Trade not found with id: " + id));
     }
 
+    /**
+     * Moves an archived trade back into trades, so that it can be written like any other trade.
+     * It is inserted before it leaves the archive; analytics see it as a newly inserted trade.
+     * @return The trade as stored in trades, empty if it is not archived
+     */
+    private Optional<Trade> restoreArchived(String id) {
+        Trade archived = tradeArchiveService.findTrade(id);
+        if (archived == null) {
+            return Optional.empty();
+        }
+        try {
+            tradeRepository.insert(archived);
+        } catch (DuplicateKeyException e) {
+            logger.debug("Archived trade {} was restored concurrently", id);
+        }
+        tradeArchiveService.remove(List.of(id));
+        notifyInsertListeners(List.of(archived));
+        logger.info("Restored archived trade {} for update", id);
+        return tradeRepository.findById(id);
+    }
+
     public Trade save(Trade trade) {
-        return tradeRepository.save(trade);
+        Trade before = trade.getId() != null ? tradeRepository.findById(trade.getId()).orElse(null) : null;
+        Date writeStartedAt = new Date();
+        Trade savedTrade = tradeRepository.save(trade);
+        notifyWriteListeners(before, savedTrade, writeStartedAt);
+        return savedTrade;
+    }
+
+    private void notifyWriteListeners(Trade before, Trade after, Date writeStartedAt) {
+        for (TradeWriteListener listener : writeListeners) {
+            try {
+                listener.onTradeWritten(before, after, writeStartedAt);
+            } catch (Exception e) {
+                logger.error("Trade write listener {} failed for trade {}: {}",
+                    listener.getClass().getSimpleName(), after.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void notifyInsertListeners(List<Trade> inserted) {
+        for (TradeWriteListener listener : writeListeners) {
+            try {
+                listener.onTradesInserted(inserted);
+            } catch (Exception e) {
+                logger.error("Trade write listener {} failed for {} inserted trades: {}",
+                    listener.getClass().getSimpleName(), inserted.size(), e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.tradepro.service;
+
+import com.tradepro.model.TradeArchiveBucket;
+import com.tradepro.model.TradeOutcome;
+import com.tradepro.model.UserAnalytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single-pass accumulator for the trade statistics served by /api/trades/count.
+ * Every counter is a primitive field, so feeding it a list of trades allocates nothing
+ * beyond the accumulator itself. The analytics snapshot stores the same counters and
+ * is built and updated through it.
+ */
+public class TradeStatsAccumulator {
+
+    private long total;
+    private long open;
+    private long closed;
+    private long winners;
+    private long profitCount;
+    private double profitSum;
+    private double grossProfits;
+    private double grossLosses;
+    private double biggestWin;
+    private double biggestLoss;
+
+    public static TradeStatsAccumulator of(Iterable<? extends TradeOutcome> trades) {
+        TradeStatsAccumulator accumulator = new TradeStatsAccumulator();
+        for (TradeOutcome trade : trades) {
+            accumulator.accept(trade);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Continues from the counters stored in a snapshot.
+     */
+    public static TradeStatsAccumulator from(UserAnalytics snapshot) {
+        TradeStatsAccumulator accumulator = new TradeStatsAccumulator();
+        accumulator.total = snapshot.getTotalTrades();
+        accumulator.open = snapshot.getOpenTrades();
+        accumulator.closed = snapshot.getClosedTrades();
+        accumulator.winners = snapshot.getWinningTrades();
+        accumulator.profitCount = snapshot.getProfitCount();
+        accumulator.profitSum = snapshot.getProfitSum();
+        accumulator.grossProfits = snapshot.getGrossProfits();
+        accumulator.grossLosses = snapshot.getGrossLosses();
+        accumulator.biggestWin = snapshot.getBiggestWin();
+        accumulator.biggestLoss = snapshot.getBiggestLoss();
+        return accumulator;
+    }
+
+    public void accept(TradeOutcome trade) {
+        total++;
+        String status = trade.getStatus();
+        if ("OPEN".equals(status)) {
+            open++;
+            return;
+        }
+        if (!"CLOSED".equals(status) && !"PARTIALLY_CLOSED".equals(status)) {
+            return;
+        }
+
+        closed++;
+        Double totalProfit = trade.getTotalProfit();
+        if (totalProfit == null) {
+            return;
+        }
+
+        double profit = totalProfit;
+        profitCount++;
+        profitSum += profit;
+        if (profit > 0) {
+            winners++;
+            grossProfits += profit;
+            if (profit > biggestWin) {
+                biggestWin = profit;
+            }
+        } else if (profit < 0) {
+            grossLosses -= profit;
+            if (profit < biggestLoss) {
+                biggestLoss = profit;
+            }
+        }
+    }
+
+    /**
+     * Adds the pre-aggregated counters of an archive bucket, whose trades are all closed.
+     */
+    public void acceptArchived(TradeArchiveBucket.Summary summary) {
+        total += summary.getTradeCount();
+        closed += summary.getTradeCount();
+        winners += summary.getWinningTrades();
+        profitCount += summary.getProfitCount();
+        profitSum += summary.getProfitSum();
+        grossProfits += summary.getGrossProfits();
+        grossLosses += summary.getGrossLosses();
+        biggestWin = Math.max(biggestWin, summary.getBiggestWin());
+        biggestLoss = Math.min(biggestLoss, summary.getBiggestLoss());
+    }
+
+    /**
+     * Merges another accumulator into this one, e.g. when trades were folded in parallel.
+     */
+    public TradeStatsAccumulator combine(TradeStatsAccumulator other) {
+        total += other.total;
+        open += other.open;
+        closed += other.closed;
+        winners += other.winners;
+        profitCount += other.profitCount;
+        profitSum += other.profitSum;
+        grossProfits += other.grossProfits;
+        grossLosses += other.grossLosses;
+        biggestWin = Math.max(biggestWin, other.biggestWin);
+        biggestLoss = Math.min(biggestLoss, other.biggestLoss);
+        return this;
+    }
+
+    /**
+     * Stores the counters in a snapshot, replacing the ones it had.
+     */
+    public void writeTo(UserAnalytics snapshot) {
+        snapshot.setTotalTrades(total);
+        snapshot.setOpenTrades(open);
+        snapshot.setClosedTrades(closed);
+        snapshot.setWinningTrades(winners);
+        snapshot.setProfitCount(profitCount);
+        snapshot.setProfitSum(profitSum);
+        snapshot.setGrossProfits(grossProfits);
+        snapshot.setGrossLosses(grossLosses);
+        snapshot.setBiggestWin(biggestWin);
+        snapshot.setBiggestLoss(biggestLoss);
+    }
+
+    public long getTotal() { return total; }
+    public long getOpen() { return open; }
+    public long getClosed() { return closed; }
+    public long getWinners() { return winners; }
+    public double getGrossProfits() { return grossProfits; }
+    public double getGrossLosses() { return grossLosses; }
+
+    public double getWinRatio() {
+        return closed > 0 ? (double) winners / closed : 0.0;
+    }
+
+    public double getAvgProfit() {
+        return profitCount > 0 ? profitSum / profitCount : 0.0;
+    }
+
+    public Double getBiggestWin() {
+        return biggestWin > 0 ? biggestWin : null;
+    }
+
+    public Double getBiggestLoss() {
+        return biggestLoss < 0 ? biggestLoss : null;
+    }
+
+    /**
+     * Builds the response body returned by /api/trades/count.
+     */
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("total", total);
+        response.put("open", open);
+        response.put("closed", closed);
+        response.put("winRatio", getWinRatio());
+        response.put("avgProfit", getAvgProfit());
+        response.put("biggestWin", getBiggestWin());
+        response.put("biggestLoss", getBiggestLoss());
+        return response;
+    }
+}
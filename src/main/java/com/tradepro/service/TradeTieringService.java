@@ -0,0 +1,201 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Exit;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeArchiveBucket;
+import com.tradepro.model.User;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Background job that moves CLOSED trades whose every exit is older than trades.archive.min-age-days
+ * from trades into the monthly buckets of {@link TradeArchiveService}, so the per-user reads of
+ * hot trades stay the same size as journals grow. A trade is copied into the archive first and
+ * deleted from trades only if it has not been written since it was read; a copy left behind by
+ * a concurrent write or an interrupted run is taken out of the archive again, as the trade in
+ * trades always wins. One node runs the job at a time, under a lease in the job_locks collection.
+ * The trade listings merge archived trades back in, so moving a trade does not change them.
+ * The job is off unless trades.archive.enabled is set.
+ */
+@Service
+public class TradeTieringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeTieringService.class);
+
+    static final String LOCKS = "job_locks";
+    private static final String JOB = "trade-archiver";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Autowired
+    private UserAnalyticsService userAnalyticsService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${trades.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${trades.archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${trades.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${trades.archive.lease:PT2H}")
+    private Duration lease;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    @Scheduled(cron = "${trades.archive.cron:0 0 4 * * *}")
+    public void archive() {
+        if (!enabled || !acquireLease()) {
+            return;
+        }
+        int cutoffDay = (int) LocalDate.now().minusDays(minAgeDays).toEpochDay();
+        long archived = 0;
+        int users = 0;
+        try {
+            Query usersQuery = new Query();
+            usersQuery.fields().include("id");
+            try (Stream<User> stream = mongoTemplate.stream(usersQuery, User.class)) {
+                for (User user : (Iterable<User>) stream::iterator) {
+                    try {
+                        long count = archiveUser(user.getId(), cutoffDay);
+                        if (count > 0) {
+                            archived += count;
+                            users++;
+                        }
+                    } catch (Exception e) {
+                        // Whatever was moved is consistent; the rest is picked up by the next run
+                        logger.error("Archiving trades of user {} stopped: {}", user.getId(), e.getMessage());
+                    }
+                }
+            }
+            logger.info("Archived {} trades of {} users with no exit since {}", archived, users, LocalDate.ofEpochDay(cutoffDay));
+        } finally {
+            releaseLease();
+        }
+    }
+
+    /**
+     * Moves the user's archivable trades with every exit before cutoffDay into the archive.
+     * @return Number of trades moved
+     */
+    long archiveUser(String userId, int cutoffDay) {
+        long archived = 0;
+        String afterId = null;
+        while (true) {
+            Criteria criteria = archivable(cutoffDay).and("userId").is(userId);
+            if (afterId != null) {
+                // Range operators are not mapped to ObjectId like equality is
+                criteria = criteria.and("_id").gt(ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId);
+            }
+            List<Trade> batch = mongoTemplate.find(
+                Query.query(criteria).with(Sort.by("_id")).limit(batchSize), Trade.class);
+            if (batch.isEmpty()) {
+                return archived;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+            archived += moveBatch(userId, batch);
+        }
+    }
+
+    private long moveBatch(String userId, List<Trade> batch) {
+        // Trades are bucketed by the day of their last exit, so one without it stays in trades
+        Map<String, List<Trade>> byMonth = new TreeMap<>();
+        List<Trade> moved = new ArrayList<>();
+        for (Trade trade : batch) {
+            List<Exit> exits = trade.getExits();
+            Integer lastExitDay = exits.get(exits.size() - 1).getExitDay();
+            if (lastExitDay != null) {
+                byMonth.computeIfAbsent(TradeArchiveBucket.monthOf(lastExitDay), month -> new ArrayList<>()).add(trade);
+                moved.add(trade);
+            }
+        }
+        if (moved.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = moved.stream().map(Trade::getId).toList();
+
+        List<String> leftBehind = tradeArchiveService.findArchivedIds(ids);
+        if (!leftBehind.isEmpty()) {
+            tradeArchiveService.remove(leftBehind);
+        }
+        try {
+            byMonth.forEach((month, trades) -> tradeArchiveService.add(userId, month, trades));
+
+            BulkOperations deletes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trade.class);
+            for (Trade trade : moved) {
+                deletes.remove(Query.query(Criteria.where("_id").is(trade.getId()).and("version").is(trade.getVersion())));
+            }
+            int deleted = deletes.execute().getDeletedCount();
+            if (deleted < moved.size()) {
+                Query written = Query.query(Criteria.where("_id").in(ids));
+                written.fields().include("id");
+                List<String> writtenIds = mongoTemplate.find(written, Trade.class).stream().map(Trade::getId).toList();
+                logger.debug("{} trades of user {} were written while being archived", writtenIds.size(), userId);
+                tradeArchiveService.remove(writtenIds);
+            }
+            return deleted;
+        } finally {
+            // A rebuild or cached result from between the copy and the delete counted the batch twice,
+            // so they are dropped after every batch rather than once the whole user is done
+            userAnalyticsService.invalidate(userId);
+            dataVersionService.bump(userId);
+        }
+    }
+
+    // Closed, typed dates written, and at least one exit but none on or after the cutoff
+    private static Criteria archivable(int cutoffDay) {
+        return Criteria.where("status").is("CLOSED")
+            .and("typedDatesVersion").is(Trade.TYPED_DATES_VERSION)
+            .and("exits.exitDay").lt(cutoffDay)
+            .and("exits").not().elemMatch(Criteria.where("exitDay").gte(cutoffDay));
+    }
+
+    private boolean acquireLease() {
+        Date now = new Date();
+        Query query = Query.query(Criteria.where("_id").is(JOB)
+            .orOperator(Criteria.where("lockedUntil").lt(now), Criteria.where("owner").is(owner)));
+        Update update = new Update().set("owner", owner).set("lockedUntil", new Date(now.getTime() + lease.toMillis()));
+        try {
+            mongoTemplate.upsert(query, update, LOCKS);
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.debug("Trade archiving is running on another node");
+            return false;
+        }
+    }
+
+    private void releaseLease() {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(JOB).and("owner").is(owner)),
+            new Update().set("lockedUntil", new Date()), LOCKS);
+    }
+}
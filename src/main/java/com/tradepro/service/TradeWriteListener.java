@@ -0,0 +1,30 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Trade;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Callback invoked by {@link TradeService} after a trade has been persisted.
+ * Implementations keep derived per-user data (snapshots, series, caches) in step with the trades.
+ */
+public interface TradeWriteListener {
+
+    /**
+     * @param before The trade as stored before the write, or null for a new trade
+     * @param after The trade as stored after the write
+     * @param writeStartedAt When the write was sent to the database, null if unknown; trades read
+     *                       since then may already show the write
+     */
+    void onTradeWritten(Trade before, Trade after, Date writeStartedAt);
+
+    /**
+     * Called once for a batch of newly inserted trades, e.g. after an import. By default every
+     * trade is passed to {@link #onTradeWritten}; listeners override it to do their work once per batch.
+     * @param inserted The inserted trades, possibly of several users
+     */
+    default void onTradesInserted(List<Trade> inserted) {
+        inserted.forEach(trade -> onTradeWritten(null, trade, null));
+    }
+}
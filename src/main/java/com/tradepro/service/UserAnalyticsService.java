@@ -0,0 +1,507 @@
+package com.tradepro.service;
+
+import com.tradepro.dto.StrategyPnL;
+import com.tradepro.model.Exit;
+import com.tradepro.model.Trade;
+import com.tradepro.model.TradeArchiveBucket;
+import com.tradepro.model.TradeOutcome;
+import com.tradepro.model.UserAnalytics;
+import com.tradepro.repository.TradeRepository;
+import com.tradepro.repository.UserAnalyticsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Maintains the per-user {@link UserAnalytics} snapshot and the P/L series kept by {@link PnLSeriesService}.
+ * Writes are applied incrementally by removing the old contribution of a trade and adding
+ * the new one; anything that cannot be undone exactly marks the snapshot stale instead.
+ * Both views are rebuilt together, so a usable snapshot implies a complete P/L series.
+ * Rebuilds read the trades still in the trades collection plus the summaries of the archived ones.
+ */
+@Service
+@Order(0)
+public class UserAnalyticsService implements TradeWriteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAnalyticsService.class);
+    private static final double DRIFT_TOLERANCE = 1e-6;
+    // Allowance for the clocks of the node that rebuilt a snapshot and the one that wrote a trade
+    private static final long CLOCK_SKEW_MS = 1000;
+
+    @Autowired
+    private UserAnalyticsRepository userAnalyticsRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private PnLSeriesService pnlSeriesService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    // Serializes read-modify-write of a user's snapshot within this node; @Version covers other nodes
+    private final Object[] locks = new Object[64];
+
+    public UserAnalyticsService() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the user's snapshot, rebuilding it from the trades if it is missing or stale.
+     */
+    public UserAnalytics getSnapshot(String userId) {
+        UserAnalytics snapshot = userAnalyticsRepository.findById(userId).orElse(null);
+        if (snapshot == null || snapshot.isStale() || snapshot.getFormat() != UserAnalytics.FORMAT) {
+            return rebuild(userId);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Recomputes the user's snapshot and P/L series from scratch and stores them.
+     */
+    public UserAnalytics rebuild(String userId) {
+        synchronized (lockFor(userId)) {
+            List<TradeOutcome> trades = tradeRepository.findOutcomesByUserId(userId);
+            List<StrategyPnL> strategies = tradeRepository.aggregateStrategyPnL(userId);
+            List<TradeArchiveBucket> archived = tradeArchiveService.getSummaries(userId);
+            Date readAt = new Date();
+            pnlSeriesService.rebuild(userId, trades, archived);
+            UserAnalytics fresh = compute(userId, trades, strategies, archived);
+            fresh.setRebuiltAt(readAt);
+            UserAnalytics existing = userAnalyticsRepository.findById(userId).orElse(null);
+            fresh.setVersion(existing != null ? existing.getVersion() : null);
+            try {
+                return userAnalyticsRepository.save(fresh);
+            } catch (OptimisticLockingFailureException e) {
+                // Another node wrote the snapshot meanwhile; the freshly computed one is still correct to serve
+                logger.debug("Snapshot for user {} changed during rebuild", userId);
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the user's snapshot and reports every value that differed from the stored one.
+     * @return Map of field name to {stored, rebuilt} for each drifted value
+     */
+    public Map<String, Object> checkDrift(String userId) {
+        UserAnalytics stored = userAnalyticsRepository.findById(userId).orElse(null);
+        UserAnalytics rebuilt = rebuild(userId);
+
+        Map<String, Object> drift = new LinkedHashMap<>();
+        if (stored == null) {
+            return drift;
+        }
+        compare(drift, "totalTrades", stored.getTotalTrades(), rebuilt.getTotalTrades());
+        compare(drift, "openTrades", stored.getOpenTrades(), rebuilt.getOpenTrades());
+        compare(drift, "closedTrades", stored.getClosedTrades(), rebuilt.getClosedTrades());
+        compare(drift, "winningTrades", stored.getWinningTrades(), rebuilt.getWinningTrades());
+        compare(drift, "profitSum", stored.getProfitSum(), rebuilt.getProfitSum());
+        compare(drift, "grossProfits", stored.getGrossProfits(), rebuilt.getGrossProfits());
+        compare(drift, "grossLosses", stored.getGrossLosses(), rebuilt.getGrossLosses());
+        compare(drift, "biggestWin", stored.getBiggestWin(), rebuilt.getBiggestWin());
+        compare(drift, "biggestLoss", stored.getBiggestLoss(), rebuilt.getBiggestLoss());
+        if (!stored.isStale()) {
+            compare(drift, "maxDrawdown", stored.getMaxDrawdown(), rebuilt.getMaxDrawdown());
+        }
+        for (StrategyPnL bucket : rebuilt.getStrategies()) {
+            StrategyPnL old = stored.getStrategy(bucket.getStrategy());
+            compare(drift, "strategy." + bucket.getStrategy(), old != null ? old.getTotalPnL() : 0.0, bucket.getTotalPnL());
+        }
+        for (UserAnalytics.YearBucket bucket : rebuilt.getYears()) {
+            UserAnalytics.YearBucket old = stored.getYear(bucket.getYear());
+            compare(drift, "year." + bucket.getYear(), old != null ? old.getTotalPnL() : 0.0, bucket.getTotalPnL());
+        }
+        if (!drift.isEmpty()) {
+            // Results cached against the current data version were computed from the drifted snapshot
+            dataVersionService.bump(userId);
+        }
+        return drift;
+    }
+
+    /**
+     * Nightly job that rebuilds every stored snapshot and logs any drift from the incremental updates.
+     */
+    @Scheduled(cron = "${analytics.snapshot.drift-check.cron:0 30 3 * * *}")
+    public void checkDriftForAllUsers() {
+        List<UserAnalytics> snapshots = userAnalyticsRepository.findAll();
+        logger.info("Checking analytics snapshot drift for {} users", snapshots.size());
+        int drifted = 0;
+        for (UserAnalytics snapshot : snapshots) {
+            try {
+                Map<String, Object> drift = checkDrift(snapshot.getUserId());
+                if (!drift.isEmpty()) {
+                    drifted++;
+                    logger.warn("Analytics snapshot drift for user {}: {}", snapshot.getUserId(), drift);
+                }
+            } catch (Exception e) {
+                logger.error("Error checking snapshot drift for user {}: {}", snapshot.getUserId(), e.getMessage());
+            }
+        }
+        logger.info("Snapshot drift check complete - {} of {} snapshots drifted", drifted, snapshots.size());
+    }
+
+    /**
+     * Applies the write to the snapshot and series, unless they were rebuilt from trades read
+     * after the write started: the rebuild may already count it, so the snapshot is marked stale instead.
+     */
+    @Override
+    public void onTradeWritten(Trade before, Trade after, Date writeStartedAt) {
+        String userId = after != null ? after.getUserId() : before.getUserId();
+        if (userId == null || sameContribution(before, after)) {
+            return;
+        }
+
+        synchronized (lockFor(userId)) {
+            UserAnalytics snapshot = userAnalyticsRepository.findById(userId).orElse(null);
+            if (snapshot == null || snapshot.isStale() || snapshot.getFormat() != UserAnalytics.FORMAT) {
+                // Built from the trades on the next read
+                return;
+            }
+            if (writeStartedAt == null || snapshot.getRebuiltAt() == null
+                    || snapshot.getRebuiltAt().getTime() + CLOCK_SKEW_MS >= writeStartedAt.getTime()) {
+                markStale(snapshot);
+                return;
+            }
+            try {
+                if (before != null) {
+                    remove(snapshot, before, after);
+                }
+                if (after != null) {
+                    add(snapshot, after);
+                }
+                // The series goes first: a new snapshot version tells readers that derived data has moved on
+                pnlSeriesService.apply(userId, before, after);
+                snapshot.setUpdatedAt(new Date());
+                userAnalyticsRepository.save(snapshot);
+            } catch (Exception e) {
+                logger.warn("Dropping analytics snapshot for user {} after failed update: {}", userId, e.getMessage());
+                userAnalyticsRepository.deleteById(userId);
+            }
+        }
+    }
+
+    /**
+     * A batch is folded in by one rebuild on the next read rather than a snapshot and series
+     * update per trade, which for an import would cost several round trips per row.
+     */
+    @Override
+    public void onTradesInserted(List<Trade> inserted) {
+        Set<String> userIds = new LinkedHashSet<>();
+        inserted.forEach(trade -> userIds.add(trade.getUserId()));
+        userIds.remove(null);
+        userIds.forEach(this::invalidate);
+    }
+
+    /**
+     * Marks the user's snapshot stale, so that it is rebuilt from the trades on the next read.
+     */
+    public void invalidate(String userId) {
+        synchronized (lockFor(userId)) {
+            UserAnalytics snapshot = userAnalyticsRepository.findById(userId).orElse(null);
+            if (snapshot == null || snapshot.isStale()) {
+                return;
+            }
+            markStale(snapshot);
+        }
+    }
+
+    private void markStale(UserAnalytics snapshot) {
+        try {
+            snapshot.setStale(true);
+            userAnalyticsRepository.save(snapshot);
+        } catch (Exception e) {
+            logger.warn("Dropping analytics snapshot for user {}: {}", snapshot.getUserId(), e.getMessage());
+            userAnalyticsRepository.deleteById(snapshot.getUserId());
+        }
+    }
+
+    private UserAnalytics compute(String userId, List<TradeOutcome> trades, List<StrategyPnL> strategies,
+                                  List<TradeArchiveBucket> archived) {
+        // Trades enter the equity curve in order of their last exit day
+        List<TradeOutcome> ordered = new ArrayList<>(trades);
+        ordered.sort(Comparator.comparing(UserAnalyticsService::equityDay,
+            Comparator.nullsLast(Comparator.naturalOrder())));
+
+        // Archived trades enter it one day at a time, from their summaries
+        List<TradeArchiveBucket.DayPnL> archivedDays = new ArrayList<>();
+        UserAnalytics snapshot = new UserAnalytics(userId);
+        // Strategy rows come grouped from MongoDB; the archived ones are merged into them
+        snapshot.setStrategies(new ArrayList<>(strategies));
+        TradeStatsAccumulator stats = TradeStatsAccumulator.of(trades);
+        for (TradeArchiveBucket bucket : archived) {
+            stats.acceptArchived(bucket.getSummary());
+            addArchived(snapshot, bucket.getSummary());
+            archivedDays.addAll(bucket.getSummary().getDays());
+        }
+        stats.writeTo(snapshot);
+        archivedDays.sort(Comparator.comparingInt(TradeArchiveBucket.DayPnL::getDay));
+
+        int day = 0;
+        for (TradeOutcome trade : ordered) {
+            Integer exitDay = equityDay(trade);
+            for (; day < archivedDays.size() && (exitDay == null || archivedDays.get(day).getDay() <= exitDay); day++) {
+                addEquity(snapshot, archivedDays.get(day).getDay(), archivedDays.get(day).getPnl());
+            }
+            addExits(snapshot, trade);
+        }
+        for (; day < archivedDays.size(); day++) {
+            addEquity(snapshot, archivedDays.get(day).getDay(), archivedDays.get(day).getPnl());
+        }
+        snapshot.setFormat(UserAnalytics.FORMAT);
+        snapshot.setStale(false);
+        snapshot.setUpdatedAt(new Date());
+        return snapshot;
+    }
+
+    private void add(UserAnalytics s, TradeOutcome trade) {
+        TradeStatsAccumulator stats = TradeStatsAccumulator.from(s);
+        stats.accept(trade);
+        stats.writeTo(s);
+        addStrategy(s, trade);
+        addExits(s, trade);
+    }
+
+    // Strategy row of a closed trade, as the strategy aggregation counts it
+    private void addStrategy(UserAnalytics s, TradeOutcome trade) {
+        StrategyPnL strategy = isClosed(trade) ? strategyBucket(s, trade.getStrategy(), true) : null;
+        if (strategy == null) {
+            return;
+        }
+        strategy.setTradeCount(strategy.getTradeCount() + 1);
+        Double totalProfit = trade.getTotalProfit();
+        if (totalProfit != null) {
+            strategy.setProfitCount(strategy.getProfitCount() + 1);
+            strategy.setTotalPnL(strategy.getTotalPnL() + totalProfit);
+            if (totalProfit > 0) {
+                strategy.setWinningTrades(strategy.getWinningTrades() + 1);
+            }
+        }
+    }
+
+    // Exit year and equity contribution of a closed trade; the counters are kept by TradeStatsAccumulator
+    private void addExits(UserAnalytics s, TradeOutcome trade) {
+        if (!isClosed(trade) || trade.getTotalProfit() == null) {
+            return;
+        }
+
+        applyExitsByYear(s, trade, 1);
+
+        Integer exitDay = equityDay(trade);
+        if (exitDay != null) {
+            addEquity(s, exitDay, trade.getTotalProfit());
+        }
+    }
+
+    private void addEquity(UserAnalytics s, int exitDay, double profit) {
+        if (s.getLastExitDay() != null && exitDay < s.getLastExitDay()) {
+            // Exit lands before the last day of the curve, so the drawdown has to be recomputed
+            s.setStale(true);
+            return;
+        }
+        if (s.getLastExitDay() == null || exitDay > s.getLastExitDay()) {
+            // The previous last day becomes part of the settled curve
+            s.setSettledEquity(s.getEquity());
+            s.setSettledPeakEquity(s.getPeakEquity());
+            s.setSettledMaxDrawdown(s.getMaxDrawdown());
+            s.setLastDayPnL(0.0);
+            s.setLastExitDay(exitDay);
+        }
+        setLastDayPnL(s, s.getLastDayPnL() + profit);
+    }
+
+    private void removeEquity(UserAnalytics s, int exitDay, double profit) {
+        if (s.getLastExitDay() == null || exitDay != s.getLastExitDay()) {
+            // Taking a point out of the settled curve cannot be undone incrementally
+            s.setStale(true);
+            return;
+        }
+        setLastDayPnL(s, s.getLastDayPnL() - profit);
+    }
+
+    // Equity, peak and drawdown up to the last day follow from the settled ones and that day's P/L
+    private static void setLastDayPnL(UserAnalytics s, double pnl) {
+        double equity = s.getSettledEquity() + pnl;
+        s.setLastDayPnL(pnl);
+        s.setEquity(equity);
+        s.setPeakEquity(Math.max(s.getSettledPeakEquity(), equity));
+        s.setMaxDrawdown(Math.max(s.getSettledMaxDrawdown(), s.getPeakEquity() - equity));
+    }
+
+    // Strategies and exit years of archived trades; their equity is added by day in compute
+    private void addArchived(UserAnalytics s, TradeArchiveBucket.Summary summary) {
+        for (StrategyPnL archived : summary.getStrategies()) {
+            StrategyPnL strategy = strategyBucket(s, archived.getStrategy(), true);
+            strategy.setTradeCount(strategy.getTradeCount() + archived.getTradeCount());
+            strategy.setProfitCount(strategy.getProfitCount() + archived.getProfitCount());
+            strategy.setTotalPnL(strategy.getTotalPnL() + archived.getTotalPnL());
+            strategy.setWinningTrades(strategy.getWinningTrades() + archived.getWinningTrades());
+        }
+        for (UserAnalytics.YearBucket archived : summary.getExitYears()) {
+            UserAnalytics.YearBucket bucket = s.getYear(archived.getYear());
+            if (bucket == null) {
+                bucket = new UserAnalytics.YearBucket(archived.getYear());
+                s.getYears().add(bucket);
+            }
+            bucket.setTotalPnL(bucket.getTotalPnL() + archived.getTotalPnL());
+        }
+    }
+
+    /**
+     * Takes out the contribution of a trade as it was before a write.
+     * @param replacement The trade after the write, null if it was deleted
+     */
+    private void remove(UserAnalytics s, TradeOutcome trade, TradeOutcome replacement) {
+        s.setTotalTrades(s.getTotalTrades() - 1);
+        if ("OPEN".equals(trade.getStatus())) {
+            s.setOpenTrades(s.getOpenTrades() - 1);
+            return;
+        }
+        if (!isClosed(trade)) {
+            return;
+        }
+
+        s.setClosedTrades(s.getClosedTrades() - 1);
+        StrategyPnL strategy = strategyBucket(s, trade.getStrategy(), false);
+        if (strategy != null) {
+            strategy.setTradeCount(strategy.getTradeCount() - 1);
+        }
+
+        Double totalProfit = trade.getTotalProfit();
+        if (totalProfit != null) {
+            double profit = totalProfit;
+            // An extreme is still right if the trade's new profit goes at least as far, e.g. after another exit
+            Double next = replacement != null && isClosed(replacement) ? replacement.getTotalProfit() : null;
+            s.setProfitCount(s.getProfitCount() - 1);
+            s.setProfitSum(s.getProfitSum() - profit);
+            if (profit > 0) {
+                s.setWinningTrades(s.getWinningTrades() - 1);
+                s.setGrossProfits(s.getGrossProfits() - profit);
+                if (profit >= s.getBiggestWin() && (next == null || next < profit)) {
+                    s.setStale(true);
+                }
+            } else if (profit < 0) {
+                s.setGrossLosses(s.getGrossLosses() + profit);
+                if (profit <= s.getBiggestLoss() && (next == null || next > profit)) {
+                    s.setStale(true);
+                }
+            }
+
+            if (strategy != null) {
+                strategy.setProfitCount(strategy.getProfitCount() - 1);
+                strategy.setTotalPnL(strategy.getTotalPnL() - profit);
+                if (profit > 0) {
+                    strategy.setWinningTrades(strategy.getWinningTrades() - 1);
+                }
+            }
+
+            applyExitsByYear(s, trade, -1);
+
+            Integer exitDay = equityDay(trade);
+            if (exitDay != null) {
+                removeEquity(s, exitDay, profit);
+            }
+        }
+
+        if (strategy != null && strategy.getTradeCount() <= 0) {
+            s.getStrategies().remove(strategy);
+        }
+    }
+
+    private void applyExitsByYear(UserAnalytics s, TradeOutcome trade, int sign) {
+        if (trade.getExits() == null) {
+            return;
+        }
+        for (Exit exit : trade.getExits()) {
+            int year = exitYear(exit);
+            if (year < 0) {
+                continue;
+            }
+            UserAnalytics.YearBucket bucket = s.getYear(year);
+            if (bucket == null) {
+                bucket = new UserAnalytics.YearBucket(year);
+                s.getYears().add(bucket);
+            }
+            bucket.setTotalPnL(bucket.getTotalPnL() + sign * exit.getProfit());
+        }
+    }
+
+    private StrategyPnL strategyBucket(UserAnalytics s, String strategy, boolean create) {
+        if (strategy == null || strategy.isEmpty()) {
+            return null;
+        }
+        StrategyPnL bucket = s.getStrategy(strategy);
+        if (bucket == null && create) {
+            bucket = new StrategyPnL(strategy);
+            s.getStrategies().add(bucket);
+        }
+        return bucket;
+    }
+
+    private static boolean isClosed(TradeOutcome trade) {
+        return "CLOSED".equals(trade.getStatus()) || "PARTIALLY_CLOSED".equals(trade.getStatus());
+    }
+
+    // Epoch day a closed trade contributes to the equity curve: the day of its last exit
+    private static Integer equityDay(TradeOutcome trade) {
+        if (!isClosed(trade) || trade.getTotalProfit() == null
+                || trade.getExits() == null || trade.getExits().isEmpty()) {
+            return null;
+        }
+        return trade.getExits().get(trade.getExits().size() - 1).getExitDay();
+    }
+
+    private static int exitYear(Exit exit) {
+        Integer day = exit.getExitDay();
+        return day != null ? LocalDate.ofEpochDay(day).getYear() : -1;
+    }
+
+    // True when the write did not change anything the snapshot is derived from (e.g. a notes edit)
+    private static boolean sameContribution(Trade before, Trade after) {
+        if (before == null || after == null) {
+            return false;
+        }
+        if (!Objects.equals(before.getUserId(), after.getUserId())
+                || !Objects.equals(before.getStatus(), after.getStatus())
+                || !Objects.equals(before.getTotalProfit(), after.getTotalProfit())
+                || !Objects.equals(before.getStrategy(), after.getStrategy())) {
+            return false;
+        }
+        List<Exit> a = before.getExits() != null ? before.getExits() : List.of();
+        List<Exit> b = after.getExits() != null ? after.getExits() : List.of();
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!Objects.equals(a.get(i).getExitDate(), b.get(i).getExitDate())
+                    || a.get(i).getProfit() != b.get(i).getProfit()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void compare(Map<String, Object> drift, String field, double stored, double rebuilt) {
+        if (Math.abs(stored - rebuilt) > DRIFT_TOLERANCE * Math.max(1.0, Math.abs(rebuilt))) {
+            drift.put(field, List.of(stored, rebuilt));
+        }
+    }
+
+    private Object lockFor(String userId) {
+        return locks[Math.floorMod(userId.hashCode(), locks.length)];
+    }
+}
@@ -1,5 +1,7 @@
 package com.tradepro.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tradepro.exception.CustomException;
 import com.tradepro.model.User;
 import com.tradepro.repository.UserRepository;
@@ -16,6 +18,8 @@ import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -34,12 +38,19 @@ public class UserService {
     private final JavaMailSender mailSender;
     private static final long PASSWORD_RESET_TOKEN_EXPIRY = 3600000; // 1 hour in milliseconds
     private final Map<String, PasswordResetToken> resetTokens = new ConcurrentHashMap<>();
+    private final ChangeStreamInvalidationService changeStreamInvalidationService;
+    // Email of every user id resolved from a token; only used while user changes are streamed in
+    private final Cache<String, String> emailsById;
 
     @Autowired
-    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder, JavaMailSender mailSender) {
+    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder, JavaMailSender mailSender,
+                       ChangeStreamInvalidationService changeStreamInvalidationService,
+                       @Value("${users.email-cache.max-size:10000}") int emailCacheMaxSize) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.mailSender = mailSender;
+        this.changeStreamInvalidationService = changeStreamInvalidationService;
+        this.emailsById = Caffeine.newBuilder().maximumSize(emailCacheMaxSize).build();
     }
 
     public User registerUser(String email, String password) {
@@ -197,11 +208,27 @@ public class UserService {
     }
 
     public String getEmailById(String userId) {
+        if (changeStreamInvalidationService.isActive()) {
+            return emailsById.get(userId, this::loadEmail);
+        }
+        return loadEmail(userId);
+    }
+
+    private String loadEmail(String userId) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new CustomException("User not found"));
         return user.getEmail();
     }
 
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (event.getKind() == DataChangeEvent.Kind.USER) {
+            emailsById.invalidate(event.getUserId());
+        } else if (event.getKind() == DataChangeEvent.Kind.RESET) {
+            emailsById.invalidateAll();
+        }
+    }
+
     public boolean emailExists(String email) {
         return userRepository.findByEmail(email) != null;
     }
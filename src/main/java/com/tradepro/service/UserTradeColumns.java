@@ -0,0 +1,195 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Exit;
+import com.tradepro.model.TradeOutcome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable column-oriented copy of one user's trades. Numbers are kept in primitive arrays,
+ * dates as epoch days, the status as a byte code and symbols and strategies as ids into
+ * per-user dictionaries, so metrics are tight loops over arrays instead of walks over
+ * boxed trade fields and date strings.
+ */
+public class UserTradeColumns {
+
+    public static final byte OPEN = 0;
+    public static final byte CLOSED = 1;
+    public static final byte PARTIALLY_CLOSED = 2;
+    public static final byte OTHER = 3;
+
+    /** Epoch day of a missing or unparseable date. */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    /** Dictionary id of a missing symbol or strategy. */
+    public static final int NONE = -1;
+
+    private final int size;
+    private final String[] ids;
+    private final byte[] status;
+    private final double[] profit;
+    private final int[] quantity;
+    private final long[] entryDay;
+    private final long[] exitDay;
+    private final int[] symbolId;
+    private final int[] strategyId;
+    private final String[] symbols;
+    private final String[] strategies;
+    private final long version;
+
+    /**
+     * @param trades The user's trades
+     * @param version Data version the trades were loaded at
+     */
+    public UserTradeColumns(List<? extends TradeOutcome> trades, long version) {
+        this(builder(trades), version);
+    }
+
+    private UserTradeColumns(Builder builder, long version) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.status = Arrays.copyOf(builder.status, size);
+        this.profit = Arrays.copyOf(builder.profit, size);
+        this.quantity = Arrays.copyOf(builder.quantity, size);
+        this.entryDay = Arrays.copyOf(builder.entryDay, size);
+        this.exitDay = Arrays.copyOf(builder.exitDay, size);
+        this.symbolId = Arrays.copyOf(builder.symbolId, size);
+        this.strategyId = Arrays.copyOf(builder.strategyId, size);
+        this.symbols = builder.symbolNames.toArray(new String[0]);
+        this.strategies = builder.strategyNames.toArray(new String[0]);
+        this.version = version;
+    }
+
+    private static Builder builder(List<? extends TradeOutcome> trades) {
+        Builder builder = new Builder(trades.size());
+        trades.forEach(builder::add);
+        return builder;
+    }
+
+    public long getVersion() { return version; }
+
+    public int size() { return size; }
+
+    public String idAt(int index) { return ids[index]; }
+
+    public byte statusAt(int index) { return status[index]; }
+
+    /**
+     * Total profit of the trade, NaN if it has none.
+     */
+    public double profitAt(int index) { return profit[index]; }
+
+    public int quantityAt(int index) { return quantity[index]; }
+
+    public long entryDayAt(int index) { return entryDay[index]; }
+
+    /**
+     * Epoch day of the trade's last exit, {@link #NO_DATE} if it has none.
+     */
+    public long exitDayAt(int index) { return exitDay[index]; }
+
+    public int symbolIdAt(int index) { return symbolId[index]; }
+
+    public int strategyIdAt(int index) { return strategyId[index]; }
+
+    public String symbol(int id) { return id != NONE ? symbols[id] : null; }
+
+    public String strategy(int id) { return id != NONE ? strategies[id] : null; }
+
+    public int symbolCount() { return symbols.length; }
+
+    public int strategyCount() { return strategies.length; }
+
+    public boolean isClosedAt(int index) {
+        return status[index] == CLOSED || status[index] == PARTIALLY_CLOSED;
+    }
+
+    /**
+     * Collects the columns one trade at a time, e.g. while folding over trades streamed from the
+     * database, so they can be built without holding every trade in memory first.
+     */
+    public static class Builder {
+
+        private int size;
+        private String[] ids;
+        private byte[] status;
+        private double[] profit;
+        private int[] quantity;
+        private long[] entryDay;
+        private long[] exitDay;
+        private int[] symbolId;
+        private int[] strategyId;
+        private final Map<String, Integer> symbolIds = new HashMap<>();
+        private final Map<String, Integer> strategyIds = new HashMap<>();
+        private final List<String> symbolNames = new ArrayList<>();
+        private final List<String> strategyNames = new ArrayList<>();
+
+        public Builder() {
+            this(64);
+        }
+
+        private Builder(int capacity) {
+            allocate(Math.max(capacity, 1));
+        }
+
+        public Builder add(TradeOutcome trade) {
+            if (size == ids.length) {
+                allocate(size * 2);
+            }
+            int i = size++;
+            ids[i] = trade.getId();
+            status[i] = statusCode(trade.getStatus());
+            profit[i] = trade.getTotalProfit() != null ? trade.getTotalProfit() : Double.NaN;
+            quantity[i] = trade.getQuantity();
+            entryDay[i] = orNoDate(trade.getEntryDay());
+            List<Exit> exits = trade.getExits();
+            exitDay[i] = exits != null && !exits.isEmpty() ? orNoDate(exits.get(exits.size() - 1).getExitDay()) : NO_DATE;
+            symbolId[i] = dictionaryId(trade.getSymbol(), symbolIds, symbolNames);
+            strategyId[i] = dictionaryId(trade.getStrategy(), strategyIds, strategyNames);
+            return this;
+        }
+
+        /**
+         * @param version Data version the trades were loaded at
+         */
+        public UserTradeColumns build(long version) {
+            return new UserTradeColumns(this, version);
+        }
+
+        private void allocate(int capacity) {
+            ids = ids == null ? new String[capacity] : Arrays.copyOf(ids, capacity);
+            status = status == null ? new byte[capacity] : Arrays.copyOf(status, capacity);
+            profit = profit == null ? new double[capacity] : Arrays.copyOf(profit, capacity);
+            quantity = quantity == null ? new int[capacity] : Arrays.copyOf(quantity, capacity);
+            entryDay = entryDay == null ? new long[capacity] : Arrays.copyOf(entryDay, capacity);
+            exitDay = exitDay == null ? new long[capacity] : Arrays.copyOf(exitDay, capacity);
+            symbolId = symbolId == null ? new int[capacity] : Arrays.copyOf(symbolId, capacity);
+            strategyId = strategyId == null ? new int[capacity] : Arrays.copyOf(strategyId, capacity);
+        }
+    }
+
+    static byte statusCode(String status) {
+        if ("OPEN".equals(status)) return OPEN;
+        if ("CLOSED".equals(status)) return CLOSED;
+        if ("PARTIALLY_CLOSED".equals(status)) return PARTIALLY_CLOSED;
+        return OTHER;
+    }
+
+    private static long orNoDate(Integer epochDay) {
+        return epochDay != null ? epochDay : NO_DATE;
+    }
+
+    private static int dictionaryId(String value, Map<String, Integer> ids, List<String> names) {
+        if (value == null) {
+            return NONE;
+        }
+        return ids.computeIfAbsent(value, v -> {
+            names.add(v);
+            return names.size() - 1;
+        });
+    }
+}
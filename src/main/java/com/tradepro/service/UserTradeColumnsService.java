@@ -0,0 +1,119 @@
+package com.tradepro.service;
+
+import com.tradepro.model.Trade;
+import com.tradepro.model.UserDataVersion;
+import com.tradepro.repository.ReactiveTradeRepository;
+import com.tradepro.repository.TradeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds and caches per-user {@link UserTradeColumns}. Columns are built lazily on first use,
+ * dropped on every write to the user's trades made here or seen on the change stream, and reused
+ * only while the user's data version is unchanged, which also catches writes made on other nodes
+ * while the change stream is down. The trades are read
+ * from a secondary when {@link AnalyticsReadRouting} allows it.
+ */
+@Service
+public class UserTradeColumnsService implements TradeWriteListener {
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private ReactiveTradeRepository reactiveTradeRepository;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private AnalyticsReadRouting analyticsReadRouting;
+
+    private final Map<String, UserTradeColumns> columns;
+
+    public UserTradeColumnsService(@Value("${analytics.trade-columns.max-cached-users:500}") int maxCachedUsers) {
+        this.columns = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserTradeColumns> eldest) {
+                return size() > maxCachedUsers;
+            }
+        });
+    }
+
+    public UserTradeColumns getColumns(String userId) {
+        UserDataVersion dataVersion = dataVersionService.getDataVersion(userId);
+        long version = dataVersion != null ? dataVersion.getVersion() : 0L;
+
+        UserTradeColumns cached = columns.get(userId);
+        if (cached != null && cached.getVersion() == version) {
+            return cached;
+        }
+
+        UserTradeColumns built = new UserTradeColumns(
+            tradeRepository.findOutcomesByUserId(userId, analyticsReadRouting.forVersion(dataVersion)), version);
+        columns.put(userId, built);
+        return built;
+    }
+
+    /**
+     * Non-blocking variant of {@link #getColumns}: on a miss the columns are folded from the
+     * trades as the reactive driver streams them in.
+     */
+    public Mono<UserTradeColumns> getColumnsReactive(String userId) {
+        return dataVersionService.getDataVersionReactive(userId)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(dataVersion -> {
+                long version = dataVersion.map(UserDataVersion::getVersion).orElse(0L);
+                UserTradeColumns cached = columns.get(userId);
+                if (cached != null && cached.getVersion() == version) {
+                    return Mono.just(cached);
+                }
+                return reactiveTradeRepository
+                    .findOutcomesByUserId(userId, analyticsReadRouting.forVersion(dataVersion.orElse(null)))
+                    .reduceWith(UserTradeColumns.Builder::new, UserTradeColumns.Builder::add)
+                    .map(builder -> {
+                        UserTradeColumns built = builder.build(version);
+                        columns.put(userId, built);
+                        return built;
+                    });
+            });
+    }
+
+    @Override
+    public void onTradeWritten(Trade before, Trade after, Date writeStartedAt) {
+        if (before != null) {
+            columns.remove(before.getUserId());
+        }
+        if (after != null) {
+            columns.remove(after.getUserId());
+        }
+    }
+
+    @Override
+    public void onTradesInserted(List<Trade> inserted) {
+        inserted.forEach(trade -> columns.remove(trade.getUserId()));
+    }
+
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (event.getKind() != DataChangeEvent.Kind.TRADES) {
+            return;
+        }
+        if (event.getUserId() != null) {
+            columns.remove(event.getUserId());
+        } else {
+            columns.clear();
+        }
+    }
+}
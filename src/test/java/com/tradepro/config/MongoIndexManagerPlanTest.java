@@ -0,0 +1,174 @@
+package com.tradepro.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.tradepro.model.Exit;
+import com.tradepro.model.Trade;
+import com.tradepro.repository.TradeRepositoryCustomImpl;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the per-user trade queries are answered from the indexes {@link MongoIndexManager}
+ * declares, by the winning plans mongod reports for them on a synthetic multi-user dataset.
+ * mongo-java-server has no query planner, so this test needs a real mongod.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MongoIndexManagerPlanTest {
+
+    private static final int USERS = 20;
+    private static final int TRADES_PER_USER = 250;
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:6.0");
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "test");
+        mongoTemplate.dropCollection(Trade.class);
+
+        Random random = new Random(42);
+        String[] statuses = {"OPEN", "CLOSED", "PARTIALLY_CLOSED"};
+        String[] symbols = {"AAPL", "TSLA", "MSFT", "NVDA", "SPY", "QQQ", "AMZN", "META", "AMD", "NFLX"};
+        List<Trade> trades = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            for (int i = 0; i < TRADES_PER_USER; i++) {
+                LocalDate entry = LocalDate.of(2021, 1, 1).plusDays(random.nextInt(1000));
+                Trade trade = new Trade();
+                trade.setUserId("user" + u);
+                trade.setSymbol(symbols[random.nextInt(symbols.length)]);
+                trade.setEntryDate(entry.toString());
+                trade.setStatus(statuses[random.nextInt(statuses.length)]);
+                if (!"OPEN".equals(trade.getStatus())) {
+                    trade.setExits(new ArrayList<>(List.of(
+                        new Exit(entry.plusDays(1 + random.nextInt(30)).toString(), 10.0, 1, 1.0, 1.0))));
+                }
+                trade.refreshTypedDates();
+                trades.add(trade);
+            }
+        }
+        mongoTemplate.insertAll(trades);
+
+        MongoIndexManager indexManager = new MongoIndexManager();
+        ReflectionTestUtils.setField(indexManager, "mongoTemplate", mongoTemplate);
+        indexManager.ensureIndexes();
+        assertTrue(indexManager.missingIndexes().isEmpty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void keysetListingWalksTheEntryDateIndexWithoutSorting() {
+        Query query = Query.query(Criteria.where("userId").is("user7"))
+            .with(Sort.by(Sort.Direction.ASC, "entryDate", "_id")).limit(50);
+
+        Plan plan = explain(query);
+
+        assertTrue(plan.indexes.contains("userId_entryDate_id"), plan.toString());
+        assertFalse(plan.stages.contains("SORT"), plan.toString());
+        assertFalse(plan.stages.contains("COLLSCAN"), plan.toString());
+    }
+
+    @Test
+    void entryDateRangeUsesUserIndexes() {
+        Criteria range = ReflectionTestUtils.invokeMethod(TradeRepositoryCustomImpl.class, "userTrades",
+            "user3", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 3, 31));
+
+        assertAnsweredFromManagedIndexes(explain(Query.query(range)));
+    }
+
+    @Test
+    void statusFilterUsesTheStatusIndex() {
+        Plan plan = explain(Query.query(Criteria.where("userId").is("user11").and("status").is("OPEN")));
+
+        assertTrue(plan.indexes.contains("userId_status"), plan.toString());
+        assertFalse(plan.stages.contains("COLLSCAN"), plan.toString());
+    }
+
+    @Test
+    void symbolLookupUsesTheSymbolIndex() {
+        Plan plan = explain(Query.query(Criteria.where("userId").is("user5").and("symbol").is("TSLA")));
+
+        assertTrue(plan.indexes.contains("userId_symbol"), plan.toString());
+        assertFalse(plan.stages.contains("COLLSCAN"), plan.toString());
+    }
+
+    @Test
+    void exitDayRangeUsesUserIndexes() {
+        int from = (int) LocalDate.of(2022, 6, 1).toEpochDay();
+        int to = (int) LocalDate.of(2022, 6, 30).toEpochDay();
+        Query query = Query.query(Criteria.where("userId").is("user13").and("exits.exitDay").gte(from).lte(to));
+
+        assertAnsweredFromManagedIndexes(explain(query));
+    }
+
+    private static void assertAnsweredFromManagedIndexes(Plan plan) {
+        assertFalse(plan.stages.contains("COLLSCAN"), plan.toString());
+        assertFalse(plan.indexes.isEmpty(), plan.toString());
+        assertTrue(MongoIndexManager.TRADE_INDEXES.keySet().containsAll(plan.indexes), plan.toString());
+    }
+
+    private Plan explain(Query query) {
+        Document find = new Document("find", mongoTemplate.getCollectionName(Trade.class))
+            .append("filter", mongoTemplate.getConverter().convertToMongoType(query.getQueryObject()))
+            .append("sort", query.getSortObject());
+        if (query.getLimit() > 0) {
+            find.append("limit", query.getLimit());
+        }
+        Document explain = mongoTemplate.getDb().runCommand(
+            new Document("explain", find).append("verbosity", "queryPlanner"));
+        Plan plan = new Plan();
+        plan.collect(explain.get("queryPlanner", Document.class).get("winningPlan"));
+        return plan;
+    }
+
+    // Stages and index names anywhere in a winning plan, whichever query engine produced it
+    private static class Plan {
+        private final List<String> stages = new ArrayList<>();
+        private final List<String> indexes = new ArrayList<>();
+
+        private void collect(Object node) {
+            if (node instanceof Document document) {
+                if (document.get("stage") instanceof String stage) {
+                    stages.add(stage);
+                }
+                if (document.get("indexName") instanceof String index) {
+                    indexes.add(index);
+                }
+                document.values().forEach(this::collect);
+            } else if (node instanceof List<?> list) {
+                list.forEach(this::collect);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "stages " + stages + ", indexes " + indexes;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.tradepro.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tradepro.service.AnalyticsCacheService;
+import com.tradepro.service.CsvImportService;
+import com.tradepro.service.DataVersionService;
+import com.tradepro.service.ImportJobService;
+import com.tradepro.service.TradeArchiveService;
+import com.tradepro.service.TradeMetricsService;
+import com.tradepro.service.TradeService;
+import com.tradepro.service.UserAnalyticsService;
+import com.tradepro.service.UserService;
+import com.tradepro.service.UserTradeColumnsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Holds more analytics requests open at once than Tomcat has request threads. The metrics of
+ * every request only complete after all of them have arrived, so the requests can only finish
+ * if the reactive endpoints hand their thread back while they wait. With a blocking endpoint
+ * the first two requests would hold both threads and the rest would never be dispatched.
+ * The application's MongoConfig requires TLS, so the services behind the controller are mocked
+ * rather than run against mongo-java-server.
+ */
+@SpringBootTest(
+    classes = ReactiveAnalyticsConcurrencyTest.WebApp.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"server.tomcat.threads.max=" + ReactiveAnalyticsConcurrencyTest.TOMCAT_THREADS,
+        "server.tomcat.threads.min-spare=1"})
+class ReactiveAnalyticsConcurrencyTest {
+
+    static final int TOMCAT_THREADS = 2;
+    private static final int REQUESTS = 32;
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class,
+        EmbeddedWebServerFactoryCustomizerAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class, JacksonAutoConfiguration.class})
+    @Import({TradeController.class, AnalyticsCacheService.class})
+    static class WebApp {
+
+        @Bean
+        Cache<AnalyticsCacheService.Key, Object> analyticsResultCache() {
+            return Caffeine.newBuilder().build();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private TradeService tradeService;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private CsvImportService csvImportService;
+    @MockBean
+    private UserAnalyticsService userAnalyticsService;
+    @MockBean
+    private TradeMetricsService tradeMetricsService;
+    @MockBean
+    private UserTradeColumnsService userTradeColumnsService;
+    @MockBean
+    private TradeArchiveService tradeArchiveService;
+    @MockBean
+    private ImportJobService importJobService;
+    @MockBean
+    private DataVersionService dataVersionService;
+
+    private final AtomicInteger arrived = new AtomicInteger();
+    private final Sinks.Empty<Void> allArrived = Sinks.empty();
+
+    @BeforeEach
+    void setUp() {
+        // One user per request, so no request is answered from the result cache
+        when(userService.getUserIdFromToken(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(dataVersionService.getDataVersionReactive(anyString())).thenReturn(Mono.empty());
+        when(tradeMetricsService.getPnLByPeriodReactive(anyString()))
+            .thenAnswer(invocation -> heldUntilAllArrived(Map.of("daily", List.of())));
+        when(tradeMetricsService.getDurationMetricsReactive(anyString()))
+            .thenAnswer(invocation -> heldUntilAllArrived(Map.of("averageDuration", 1.0)));
+    }
+
+    @Test
+    void pnlByPeriodRequestsDoNotHoldTomcatThreads() throws Exception {
+        assertAllRequestsComplete("/api/trades/pnl-by-period");
+    }
+
+    @Test
+    void durationMetricsRequestsDoNotHoldTomcatThreads() throws Exception {
+        assertAllRequestsComplete("/api/trades/duration-metrics");
+    }
+
+    private Mono<Map<String, Object>> heldUntilAllArrived(Map<String, Object> result) {
+        if (arrived.incrementAndGet() == REQUESTS) {
+            allArrived.tryEmitEmpty();
+        }
+        return allArrived.asMono().then(Mono.just(result));
+    }
+
+    private void assertAllRequestsComplete(String path) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer user" + i)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(REQUESTS, arrived.get());
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode(), response.get().body());
+        }
+    }
+}
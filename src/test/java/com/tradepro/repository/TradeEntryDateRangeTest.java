@@ -0,0 +1,87 @@
+package com.tradepro.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.tradepro.model.Trade;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Entry date ranges over trades with and without typed dates. Trades not migrated yet are matched
+ * through $dateFromString, which mongo-java-server does not run, so this test needs a real mongod.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TradeEntryDateRangeTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:6.0");
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private TradeRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "test");
+        mongoTemplate.dropCollection(Trade.class);
+        repository = new TradeRepositoryCustomImpl();
+        ReflectionTestUtils.setField(repository, "mongoTemplate", mongoTemplate);
+
+        insertTyped("typed-in", "2024-02-10");
+        insertTyped("typed-out", "2024-03-10");
+        insertLegacy("iso-in", "2024-02-01");
+        insertLegacy("iso-out", "2024-01-31");
+        insertLegacy("us-in", "2/29/2024");
+        insertLegacy("us-padded-in", "02/15/2024");
+        insertLegacy("us-out", "3/1/2024");
+        insertLegacy("unparseable", "someday");
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void matchesUnmigratedTradesInBothDateFormats() {
+        List<Trade> trades = repository.findByUserId("user", null, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+
+        assertEquals(List.of("iso-in", "typed-in", "us-in", "us-padded-in"),
+            trades.stream().map(Trade::getSymbol).sorted().toList());
+    }
+
+    @Test
+    void openEndedRangesMatchUnmigratedTrades() {
+        List<Trade> trades = repository.findByUserId("user", null, LocalDate.of(2024, 3, 1), null);
+
+        assertEquals(List.of("typed-out", "us-out"), trades.stream().map(Trade::getSymbol).sorted().toList());
+    }
+
+    private void insertTyped(String symbol, String entryDate) {
+        Trade trade = new Trade();
+        trade.setUserId("user");
+        trade.setSymbol(symbol);
+        trade.setEntryDate(entryDate);
+        trade.refreshTypedDates();
+        mongoTemplate.insert(trade);
+    }
+
+    // As written before typed dates existed, without entryDay
+    private void insertLegacy(String symbol, String entryDate) {
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Trade.class)).insertOne(
+            new Document("userId", "user").append("symbol", symbol).append("entryDate", entryDate));
+    }
+}
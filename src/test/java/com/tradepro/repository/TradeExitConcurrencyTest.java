@@ -0,0 +1,153 @@
+package com.tradepro.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.tradepro.model.Exit;
+import com.tradepro.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires concurrent exits at one trade and checks the guards of a single exit. The exit update is
+ * an aggregation pipeline guarded by $expr, which mongo-java-server does not run, so this test
+ * needs a real mongod.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TradeExitConcurrencyTest {
+
+    private static final int QUANTITY = 100;
+    private static final int EXIT_QUANTITY = 3;
+    private static final int EXITS = 64;
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:6.0");
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private TradeRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "test");
+        mongoTemplate.dropCollection(Trade.class);
+        repository = new TradeRepositoryCustomImpl();
+        ReflectionTestUtils.setField(repository, "mongoTemplate", mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void concurrentExitsNeitherGetLostNorOverClose() throws Exception {
+        String id = insertTrade(10.0);
+        long initialVersion = mongoTemplate.findById(id, Trade.class).getVersion();
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Trade>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < EXITS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return repository.pushExit(id, "2024-02-01", 11.0, EXIT_QUANTITY);
+                }));
+            }
+            start.countDown();
+
+            List<Long> versionsBefore = new ArrayList<>();
+            for (Future<Trade> result : results) {
+                Trade before = result.get();
+                if (before != null) {
+                    versionsBefore.add(before.getVersion());
+                }
+            }
+
+            Trade stored = mongoTemplate.findById(id, Trade.class);
+            int exitedQuantity = stored.getExits().stream().mapToInt(Exit::getExitQuantity).sum();
+            int applied = versionsBefore.size();
+
+            assertTrue(exitedQuantity <= QUANTITY, "exited " + exitedQuantity + " of " + QUANTITY);
+            // Every exit that reported success is stored, and as many as fit were accepted
+            assertEquals(applied, stored.getExits().size());
+            assertEquals(QUANTITY / EXIT_QUANTITY, applied);
+            assertEquals(QUANTITY - applied * EXIT_QUANTITY, stored.getRemainingQuantity());
+            assertEquals(applied * EXIT_QUANTITY * 1.0, stored.getTotalProfit(), 1e-9);
+
+            // One version step per exit: each exit saw a different version before it
+            assertEquals(initialVersion + applied, stored.getVersion());
+            versionsBefore.sort(null);
+            for (int i = 0; i < applied; i++) {
+                assertEquals(initialVersion + i, versionsBefore.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void exitValuesAreStoredAsGivenRatherThanReadAsFieldPaths() {
+        String id = insertTrade(10.0);
+
+        assertNotNull(repository.pushExit(id, "$userId", 11.0, EXIT_QUANTITY));
+
+        Exit exit = mongoTemplate.findById(id, Trade.class).getExits().get(0);
+        assertEquals("$userId", exit.getExitDate());
+        assertEquals(11.0, exit.getExitPrice());
+        assertEquals(EXIT_QUANTITY, exit.getExitQuantity());
+    }
+
+    @Test
+    void nonPositiveExitQuantitiesAreRejected() {
+        String id = insertTrade(10.0);
+
+        assertNull(repository.pushExit(id, "2024-02-01", 11.0, 0));
+        assertNull(repository.pushExit(id, "2024-02-01", 11.0, -EXIT_QUANTITY));
+
+        Trade stored = mongoTemplate.findById(id, Trade.class);
+        assertTrue(stored.getExits().isEmpty());
+        assertEquals(QUANTITY, stored.getRemainingQuantity());
+    }
+
+    @Test
+    void exitOfAZeroPricedTradeHasNoProfitPercentage() {
+        String id = insertTrade(0.0);
+
+        repository.pushExit(id, "2024-02-01", 1.0, EXIT_QUANTITY);
+
+        Trade stored = mongoTemplate.findById(id, Trade.class);
+        assertNull(stored.getExits().get(0).getProfitPercentage());
+        assertNull(stored.getTotalProfitPercentage());
+    }
+
+    private String insertTrade(double price) {
+        Trade trade = new Trade();
+        trade.setUserId("user");
+        trade.setSymbol("AAPL");
+        trade.setEntryDate("2024-01-15");
+        trade.setQuantity(QUANTITY);
+        trade.setRemainingQuantity(QUANTITY);
+        trade.setPrice(price);
+        return mongoTemplate.insert(trade).getId();
+    }
+}
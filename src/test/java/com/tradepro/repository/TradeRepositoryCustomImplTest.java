@@ -0,0 +1,86 @@
+package com.tradepro.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.tradepro.model.Trade;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TradeRepositoryCustomImplTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private TradeRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "test");
+        repository = new TradeRepositoryCustomImpl();
+        ReflectionTestUtils.setField(repository, "mongoTemplate", mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void pagesThroughTradesSharingTheBoundaryEntryDate() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(insert(null));
+        }
+        for (int i = 0; i < 7; i++) {
+            expected.add(insert("2024-01-15"));
+        }
+        expected.add(insert("2024-01-16"));
+        insertForOtherUser("2024-01-15");
+
+        List<String> listed = new ArrayList<>();
+        String afterEntryDate = null;
+        String afterId = null;
+        while (true) {
+            List<Trade> page = repository.findPageByUserId("user", afterEntryDate, afterId, 2, null, null, null);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(trade -> listed.add(trade.getId()));
+            Trade last = page.get(page.size() - 1);
+            afterEntryDate = last.getEntryDate();
+            afterId = last.getId();
+        }
+
+        assertEquals(expected, listed);
+    }
+
+    private String insert(String entryDate) {
+        Trade trade = new Trade();
+        trade.setUserId("user");
+        trade.setEntryDate(entryDate);
+        trade.setSymbol("AAPL");
+        return mongoTemplate.insert(trade).getId();
+    }
+
+    private void insertForOtherUser(String entryDate) {
+        Trade trade = new Trade();
+        trade.setUserId("other");
+        trade.setEntryDate(entryDate);
+        mongoTemplate.insert(trade);
+    }
+}
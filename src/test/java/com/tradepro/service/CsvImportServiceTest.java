@@ -0,0 +1,91 @@
+package com.tradepro.service;
+
+import com.tradepro.dto.BrokerTradeRecord;
+import com.tradepro.exception.CsvImportException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvImportServiceTest {
+
+    private static final String FIDELITY_HEADER =
+        "Run Date,Action,Symbol,Description,Type,Quantity,Price ($),Commission ($),Fees ($),Amount ($)\n";
+    private static final String ROBINHOOD_HEADER =
+        "\"Activity Date\",\"Process Date\",\"Settle Date\",\"Instrument\",\"Description\",\"Trans Code\",\"Quantity\",\"Price\",\"Amount\"\n";
+
+    private CsvImportService csvImportService;
+
+    @BeforeEach
+    void setUp() {
+        csvImportService = new CsvImportService();
+        // Chunks of three records on four threads, so that most chunks are parsed concurrently
+        ReflectionTestUtils.setField(csvImportService, "parseParallelism", 4);
+        ReflectionTestUtils.setField(csvImportService, "parseChunkSize", 3);
+        csvImportService.startParsePool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        csvImportService.stopParsePool();
+    }
+
+    @Test
+    void keepsMultiLineQuotedFieldsWholeAcrossChunks() throws IOException {
+        StringBuilder csv = new StringBuilder(FIDELITY_HEADER);
+        for (int i = 0; i < 50; i++) {
+            // Every record spans two lines, so the line after each third record starts a new chunk mid-field
+            csv.append("01/05/2024,YOU BOUGHT OPENING TRANSACTION,S").append(i)
+                .append(",\"APPLE\nINC, \"\"CLASS ").append(i).append("\"\"\",Cash,10,\"$1,150.25\",0,0,-11502.50\n");
+        }
+
+        List<BrokerTradeRecord> records = new ArrayList<>();
+        int count = csvImportService.parseBrokerRecords(new BufferedReader(new StringReader(csv.toString())), records::add);
+
+        assertEquals(50, count);
+        assertEquals(50, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            BrokerTradeRecord record = records.get(i);
+            assertEquals("S" + i, record.getSymbol());
+            // The fields after the description are only in place if its lines were joined
+            assertEquals(10.0, record.getQuantity());
+            assertEquals(1150.25, record.getPrice());
+            assertEquals(-11502.50, record.getAmount());
+        }
+    }
+
+    @Test
+    void reportsTheFirstFailingLine() {
+        StringBuilder csv = new StringBuilder(ROBINHOOD_HEADER);
+        for (int i = 0; i < 100; i++) {
+            String quantity = i == 57 || i == 80 ? "x" : "5";
+            csv.append("\"1/5/2024\",\"1/5/2024\",\"1/8/2024\",\"TSLA\",\"Tesla\",\"BTO\",\"")
+                .append(quantity).append("\",\"$200.00\",\"($1,000.00)\"\n");
+        }
+
+        CsvImportException e = assertThrows(CsvImportException.class, () ->
+            csvImportService.parseBrokerRecords(new BufferedReader(new StringReader(csv.toString())), record -> {}));
+        assertTrue(e.getMessage().startsWith("Error parsing line 58:"), e.getMessage());
+    }
+
+    @Test
+    void rejectsRobinhoodQuantitiesWrittenAsAmounts() {
+        for (String quantity : new String[] {"1,000", "$5", "(5)"}) {
+            String csv = ROBINHOOD_HEADER + "\"1/5/2024\",\"1/5/2024\",\"1/8/2024\",\"TSLA\",\"Tesla\",\"BTO\",\""
+                + quantity + "\",\"$200.00\",\"($1,000.00)\"\n";
+
+            assertThrows(CsvImportException.class, () ->
+                csvImportService.parseBrokerRecords(new BufferedReader(new StringReader(csv)), record -> {}), quantity);
+        }
+    }
+}
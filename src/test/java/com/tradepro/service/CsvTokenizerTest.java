@@ -0,0 +1,80 @@
+package com.tradepro.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvTokenizerTest {
+
+    private final CsvTokenizer tokenizer = new CsvTokenizer(',');
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "$1,234.56", "(12.00)", "($1,000.00)", "(0.01)", "$-5", "-5", "+5", "-0", "0.1", ".5", "5.", "  7 ",
+        "3.14159", "99999999999999.99", "123456789012345678", "1234567890.123456789",
+        "0.0000000000000000000000001", "1e3", "(5", "5)"
+    })
+    void parsesNumbersLikeTheLegacyChain(String value) {
+        tokenizer.tokenize("\"" + value + "\"");
+        assertEquals(legacyNumber(value), tokenizer.number(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "$", ".", "-(5)", "--5", "12.345.6", "1,2,3x"})
+    void rejectsWhatTheLegacyChainRejects(String value) {
+        assertThrows(NumberFormatException.class, () -> legacyNumber(value));
+        tokenizer.tokenize("\"" + value + "\"");
+        assertThrows(NumberFormatException.class, () -> tokenizer.number(0));
+    }
+
+    @Test
+    void parsesRandomDecimalsLikeTheLegacyChain() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String value = BigDecimal.valueOf(random.nextLong() % 10_000_000_000L, random.nextInt(8)).toPlainString();
+            tokenizer.tokenize(value);
+            assertEquals(legacyNumber(value), tokenizer.number(0), value);
+        }
+    }
+
+    @Test
+    void splitsQuotedAndEmptyFields() {
+        assertEquals(6, tokenizer.tokenize(" a ,\"b,c\",\"say \"\"hi\"\"\",,\"\", "));
+        assertEquals("a", tokenizer.field(0));
+        assertEquals("b,c", tokenizer.field(1));
+        assertEquals("say \"hi\"", tokenizer.field(2));
+        assertTrue(tokenizer.isBlank(3));
+        assertTrue(tokenizer.isBlank(4));
+        assertTrue(tokenizer.isBlank(5));
+        assertThrows(NumberFormatException.class, () -> tokenizer.number(3));
+    }
+
+    @Test
+    void replacesTheFieldsOfThePreviousLine() {
+        tokenizer.tokenize("a long first line with one field,and another field,and a third");
+        assertEquals(1, tokenizer.tokenize(""));
+        assertTrue(tokenizer.isBlank(0));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> tokenizer.field(1));
+
+        CsvTokenizer tabs = new CsvTokenizer('\t');
+        assertEquals(3, tabs.tokenize("x\ty, z\t"));
+        assertEquals("y, z", tabs.field(1));
+    }
+
+    // How the broker parsers read amounts before CsvTokenizer
+    private static double legacyNumber(String value) {
+        return Double.parseDouble(value
+            .replace("$", "")
+            .replace(",", "")
+            .replace("(", "-")
+            .replace(")", "")
+            .trim());
+    }
+}
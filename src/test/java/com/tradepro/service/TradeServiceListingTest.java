@@ -0,0 +1,105 @@
+package com.tradepro.service;
+
+import com.tradepro.dto.TradePage;
+import com.tradepro.model.Trade;
+import com.tradepro.repository.TradeRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Trade listings over a user whose trades are split between the trades collection and the archive.
+ */
+class TradeServiceListingTest {
+
+    private final List<Trade> hot = new ArrayList<>();
+    private final List<Trade> archived = new ArrayList<>();
+    private TradeService tradeService;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 20; i++) {
+            Trade trade = new Trade();
+            trade.setId(new ObjectId().toHexString());
+            trade.setUserId("user");
+            trade.setEntryDate(i % 4 == 0 ? null : "2024-01-" + (10 + i / 3));
+            (i % 3 == 0 ? archived : hot).add(trade);
+        }
+        hot.sort(TradeService.LISTING_ORDER);
+        archived.sort(TradeService.LISTING_ORDER);
+        // Caught between the copy into the archive and the delete from trades
+        archived.add(hot.get(4));
+        archived.sort(TradeService.LISTING_ORDER);
+
+        TradeRepository tradeRepository = mock(TradeRepository.class);
+        when(tradeRepository.findByUserId("user")).thenReturn(hot);
+        when(tradeRepository.findPageByUserId(eq("user"), any(), any(), anyInt(), isNull(), isNull(), isNull()))
+            .thenAnswer(invocation -> hotPage(invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+        when(tradeRepository.streamByUserId("user", null, null, null)).thenAnswer(invocation -> hot.stream());
+        TradeArchiveService tradeArchiveService = mock(TradeArchiveService.class);
+        when(tradeArchiveService.findTrades("user", null, null)).thenReturn(archived);
+
+        tradeService = new TradeService();
+        ReflectionTestUtils.setField(tradeService, "tradeRepository", tradeRepository);
+        ReflectionTestUtils.setField(tradeService, "tradeArchiveService", tradeArchiveService);
+    }
+
+    @Test
+    void listsArchivedTradesOnce() {
+        assertEquals(20, tradeService.getTradesByUserId("user", null, null, null).size());
+    }
+
+    @Test
+    void pagesThroughHotAndArchivedTradesInListingOrder() {
+        List<Trade> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            TradePage page = tradeService.getTradePage("user", cursor, 3, null, null, null);
+            listed.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(expectedOrder(), ids(listed));
+    }
+
+    @Test
+    void streamsHotAndArchivedTradesInListingOrder() {
+        try (Stream<Trade> trades = tradeService.streamTradesByUserId("user", null, null, null)) {
+            assertEquals(expectedOrder(), ids(trades.toList()));
+        }
+    }
+
+    private List<Trade> hotPage(String afterEntryDate, String afterId, int limit) {
+        Trade after = new Trade();
+        after.setId(afterId);
+        after.setEntryDate(afterEntryDate);
+        return hot.stream()
+            .filter(trade -> afterId == null || TradeService.LISTING_ORDER.compare(trade, after) > 0)
+            .limit(limit)
+            .toList();
+    }
+
+    private List<String> expectedOrder() {
+        List<Trade> all = new ArrayList<>(hot);
+        archived.stream().filter(trade -> !hot.contains(trade)).forEach(all::add);
+        all.sort(TradeService.LISTING_ORDER);
+        return ids(all);
+    }
+
+    private static List<String> ids(List<Trade> trades) {
+        return trades.stream().map(Trade::getId).toList();
+    }
+}